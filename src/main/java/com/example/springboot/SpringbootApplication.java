@@ -5,10 +5,12 @@ import io.swagger.v3.oas.annotations.info.Info;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @OpenAPIDefinition(info = @Info(title = "API Auto-atendimento - Caixa Supermercado", version = "1", description = "Api desenvolvida para gerenciar auto-atendimentos de caixas de supermercado"))
 @EntityScan(basePackages = "com.example.springboot.models")
+@EnableScheduling
 public class SpringbootApplication {
 
 	public static void main(String[] args) {
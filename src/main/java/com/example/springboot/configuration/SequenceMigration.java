@@ -0,0 +1,78 @@
+package com.example.springboot.configuration;
+
+import com.example.springboot.models.InvoiceHeaderModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Tables whose ids used to come from an identity column: the sequence that replaced it is created by the schema
+// update starting at 1, so it is moved past the ids already taken before the application serves requests.
+// Instances still running the identity mapping must be stopped first, both would hand out the same ids
+@Component
+public class SequenceMigration {
+
+    private record Migration(String sequence, String table, String column, int allocationSize) {
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration("invoice_header_seq", "tb_invheader", "invoice_number", InvoiceHeaderModel.ID_ALLOCATION_SIZE));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected so the schema update has run, and for the dialect's sequence syntax
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void migrate() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for(Migration migration : MIGRATIONS){
+            if(dialect instanceof PostgreSQLDialect){
+                transaction.executeWithoutResult(status -> migratePostgreSQL(migration));
+            }else{
+                migrate(dialect, migration);
+            }
+        }
+    }
+
+    // Instances starting together take turns on an advisory lock held until commit. The sequence is only moved while
+    // ids above its last value exist, which the ids it hands out never are, so it can only go forward and only once
+    private void migratePostgreSQL(Migration migration) {
+        jdbcTemplate.execute("select pg_advisory_xact_lock(hashtext('" + migration.sequence() + "'))");
+        Long maxId = jdbcTemplate.queryForObject(
+                "select coalesce(max(" + migration.column() + "), 0) from " + migration.table(), Long.class);
+        // Not called: the next value is maxId + allocationSize, handing out maxId + 1 onwards
+        jdbcTemplate.query("select setval('" + migration.sequence() + "', ?, false) from " + migration.sequence()
+                        + " where last_value < ?",
+                rs -> {}, maxId + migration.allocationSize(), maxId);
+    }
+
+    // Other databases are only used by a single instance, the sequence is read and restarted without a lock
+    private void migrate(Dialect dialect, Migration migration) {
+        Long maxId = jdbcTemplate.queryForObject(
+                "select coalesce(max(" + migration.column() + "), 0) from " + migration.table(), Long.class);
+        if(maxId == null || maxId == 0){
+            return;
+        }
+        // With the pooled optimizer a sequence value v hands out the ids v - allocationSize + 1 up to v
+        Long next = jdbcTemplate.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(migration.sequence()), Long.class);
+        if(next != null && next - migration.allocationSize() + 1 <= maxId){
+            jdbcTemplate.execute("alter sequence " + migration.sequence() + " restart with " + (maxId + migration.allocationSize()));
+        }
+    }
+}
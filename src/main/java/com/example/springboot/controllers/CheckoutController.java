@@ -0,0 +1,106 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.dtos.CheckoutRecordDto;
+import com.example.springboot.dtos.ItemBatchLineRecordDto;
+import com.example.springboot.models.CustomerModel;
+import com.example.springboot.models.InvoiceHeaderModel;
+import com.example.springboot.models.OPTModel;
+import com.example.springboot.models.PaymentMethodModel;
+import com.example.springboot.services.CustomerLookupService;
+import com.example.springboot.services.IdempotencyService;
+import com.example.springboot.services.InvoiceService;
+import com.example.springboot.services.ProductCacheService;
+import com.example.springboot.services.ProductCacheService.ProductSnapshot;
+import com.example.springboot.services.ReferenceDataRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@RestController
+@Tag(name = "Checkout")
+public class CheckoutController {
+
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+    @Autowired
+    private CustomerLookupService customerLookupService;
+    @Autowired
+    private ProductCacheService productCacheService;
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Operation(summary = "Registra e confirma uma venda completa em uma única requisição", method = "POST",
+            description = "Cria o cabeçalho, resolve os códigos de barras, adiciona os itens, calcula o total, movimenta o estoque e confirma a nota " +
+                    "em uma única transação. Se alguma linha for rejeitada ou faltar estoque nada é gravado")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Venda registrada e confirmada",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{ \"customerCpf\": \"85834532098\", \"paymentId\": 1, \"optId\": 1000, \"items\": [{ \"barCode\": 123456, \"qty\": 2 }] }")
+                    )),
+            @ApiResponse(responseCode = "400", description = "Requisição inválida", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "CPF do cliente, ID do pagamento ou ID da operação não encontrados", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "OPT inativo, linhas rejeitadas (todas listadas), estoque insuficiente ou valor da nota zerado", content = @Content()),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já utilizada em outra requisição", content = @Content())
+    })
+    @PostMapping(value = "/checkout", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> checkout(@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                           @RequestBody @Valid CheckoutRecordDto checkoutRecordDto){
+        return idempotencyService.execute(idempotencyKey, "POST /checkout", checkoutRecordDto,
+                () -> runCheckout(checkoutRecordDto));
+    }
+
+    private ResponseEntity<Object> runCheckout(CheckoutRecordDto checkoutRecordDto){
+        Optional<OPTModel> opt = referenceDataRegistry.findOpt(checkoutRecordDto.optId());
+        if(opt.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("OPT Not Found");
+        }
+        if(opt.get().getActive().equals("N")){
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("OPT is not active");
+        }
+        Optional<PaymentMethodModel> paymentMethod = referenceDataRegistry.findPaymentMethod(checkoutRecordDto.paymentId());
+        if(paymentMethod.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method Not Found");
+        }
+        Optional<CustomerModel> customer = Optional.empty();
+        if(checkoutRecordDto.customerCpf() != null){
+            customer = customerLookupService.find(checkoutRecordDto.customerCpf());
+            if(customer.isEmpty()){
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Customer Not Found");
+            }
+        }
+
+        // Resolved up front only to know which product stock locks to take; the lines themselves are validated in the transaction
+        List<UUID> idProducts = productCacheService.findAllByBarCode(
+                        checkoutRecordDto.items().stream().map(ItemBatchLineRecordDto::barCode).toList())
+                .values().stream().map(ProductSnapshot::idProduct).toList();
+
+        CustomerModel customerModel = customer.orElse(null);
+        InvoiceHeaderModel invoiceHeader = invoiceService.checkout(() -> {
+            var invoiceHeaderModel = new InvoiceHeaderModel();
+            invoiceHeaderModel.setOpt(opt.get());
+            invoiceHeaderModel.setPayment(paymentMethod.get());
+            invoiceHeaderModel.setCustomer(customerModel);
+            return invoiceHeaderModel;
+        }, checkoutRecordDto.items(), idProducts);
+        return ResponseEntity.status(HttpStatus.CREATED).body(invoiceHeader);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.services.Catalog;
+import com.example.springboot.services.CatalogVersionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+// The ETag is read before the query, so a write committed in between only costs the client one extra download
+final class ConditionalGet {
+
+    private final CatalogVersionService catalogVersionService;
+
+    private final String eTag;
+
+    private ConditionalGet(CatalogVersionService catalogVersionService, String eTag) {
+        this.catalogVersionService = catalogVersionService;
+        this.eTag = eTag;
+    }
+
+    static ConditionalGet of(CatalogVersionService catalogVersionService, Catalog catalog) {
+        return new ConditionalGet(catalogVersionService, catalogVersionService.eTag(catalog));
+    }
+
+    boolean isNotModified(WebRequest webRequest) {
+        return webRequest.checkNotModified(eTag);
+    }
+
+    <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .build();
+    }
+
+    <T> ResponseEntity<T> withValidators(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(eTag)
+                .cacheControl(catalogVersionService.cacheControl())
+                .body(response.getBody());
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.springboot.controllers;
 
 import com.example.springboot.dtos.CustomerRecordDto;
+import com.example.springboot.dtos.CustomerResponseDto;
 import com.example.springboot.models.CustomerModel;
 import com.example.springboot.repositories.CustomerRepository;
+import com.example.springboot.services.CustomerLookupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -21,6 +23,7 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -30,9 +33,14 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Cliente")
 public class CustomerController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(CustomerController.class, "getOneCustomer");
+
     @Autowired
     CustomerRepository customerRepository;
 
+    @Autowired
+    private CustomerLookupService customerLookupService;
+
     @Operation(summary = "Realiza o cadastro do cliente", method = "POST")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Cliente cadastrado com sucesso",
@@ -50,8 +58,8 @@ public class CustomerController {
     })
     @PostMapping(value = "/customers",consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Object> saveCustomer(@RequestBody @Valid CustomerRecordDto customerRecordDto) {
-        Optional<CustomerModel> customer = customerRepository.findById(customerRecordDto.cpf());
-        if(customer.isPresent()){
+        // Always the database: the CPF is an assigned id, so saving an existing one would overwrite it
+        if(customerRepository.existsById(customerRecordDto.cpf())){
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Customer already exists");
         }
 
@@ -61,26 +69,28 @@ public class CustomerController {
         Timestamp birthDate = convertStringToTimestamp(customerRecordDto.birthDate());
         customerModel.setBirthDate(birthDate);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(customerRepository.save(customerModel));
+        CustomerModel customerModelSaved = customerRepository.save(customerModel);
+        customerLookupService.registered(customerModelSaved.getCpf());
+        return ResponseEntity.status(HttpStatus.CREATED).body(customerModelSaved);
     }
 
-    @Operation(summary = "Busca todos os clientes cadastrados")
+    @Operation(summary = "Busca todos os clientes cadastrados",
+            description = "Paginado por chave: informe em after o último CPF recebido e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Clientes listados com sucesso", content = @Content()),
             @ApiResponse(responseCode = "204", description = "Sem cliente para listar", content = @Content())
     })
     @GetMapping("/customers")
-    public ResponseEntity<List<CustomerModel>> getAllLocations(){
-        List<CustomerModel> customersList= customerRepository.findAll();
-        if(!customersList.isEmpty()){
-            for(CustomerModel customer : customersList){
-                String cpf = customer.getCpf();
-                customer.add(linkTo(methodOn(CustomerController.class).getOneCustomer(cpf)).withSelfRel());
-            }
-        }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    public ResponseEntity<List<CustomerResponseDto>> getAllLocations(@RequestParam(value = "after", required = false) String after,
+                                                                     @RequestParam(value = "limit", required = false) Integer limit){
+        List<CustomerResponseDto> customersList= customerRepository.findResponsePage(
+                after == null ? "" : after, KeysetPagination.fetchLimit(limit));
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(CustomerResponseDto customer : customersList){
+            String cpf = customer.getCpf();
+            customer.add(selfLink.expand(cpf));
         }
-        return ResponseEntity.status(HttpStatus.OK).body(customersList);
+        return KeysetPagination.toResponse(customersList, limit, CustomerResponseDto::getCpf);
     }
 
     @Operation(summary = "Busca um cliente a partir de um CPF")
@@ -90,11 +100,11 @@ public class CustomerController {
     })
     @GetMapping("/customers/{cpf}")
     public ResponseEntity<Object> getOneCustomer(@PathVariable(value = "cpf") String cpf){
-        Optional<CustomerModel> customer = customerRepository.findById(cpf);
+        Optional<CustomerResponseDto> customer = customerRepository.findResponseById(cpf);
         if(customer.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Customer not found. ");
         }
-        customer.get().add(linkTo(methodOn(CustomerController.class).getAllLocations()).withSelfRel());
+        customer.get().add(linkTo(methodOn(CustomerController.class).getAllLocations(null, null)).withSelfRel().expand());
         return ResponseEntity.status(HttpStatus.OK).body(customer.get());
     }
 
@@ -139,9 +149,19 @@ public class CustomerController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Customer Not Found");
         }
         customerRepository.delete(customer.get());
+        customerLookupService.removed(cpf);
         return ResponseEntity.status(HttpStatus.OK).body("Customer delete successfully");
     }
 
+    @Operation(summary = "Estatísticas da consulta de CPF (cache de clientes encontrados)",
+            description = "Consultas respondidas pelo cache, consultas ao banco e CPFs não encontrados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estatísticas listadas com sucesso", content = @Content())
+    })
+    @GetMapping("/customers/lookup/stats")
+    public ResponseEntity<Map<String, Object>> getCustomerLookupStats(){
+        return ResponseEntity.status(HttpStatus.OK).body(customerLookupService.stats());
+    }
 
     private Timestamp convertStringToTimestamp(String date) {
         SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
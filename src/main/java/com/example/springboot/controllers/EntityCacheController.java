@@ -0,0 +1,34 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.services.EntityCacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@Tag(name = "Cache")
+public class EntityCacheController {
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Operation(summary = "Estatísticas do cache de segundo nível das entidades",
+            description = "Acertos, falhas e inserções por região: produtos, clientes, OPT's, métodos de pagamento, estoque e consultas. " +
+                    "Coletadas apenas com entity-cache.statistics.enabled=true; desligadas, a resposta informa statisticsEnabled false e só lista as regiões")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estatísticas listadas com sucesso", content = @Content())
+    })
+    @GetMapping("/cache/entities/stats")
+    public ResponseEntity<Map<String, Object>> getEntityCacheStats(){
+        return ResponseEntity.status(HttpStatus.OK).body(entityCacheService.stats());
+    }
+}
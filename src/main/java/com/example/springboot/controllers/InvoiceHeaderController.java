@@ -2,12 +2,14 @@ package com.example.springboot.controllers;
 
 import com.example.springboot.dtos.InvoiceHeaderRecordDto;
 import com.example.springboot.models.*;
-import com.example.springboot.repositories.CustomerRepository;
 import com.example.springboot.repositories.InvoiceHeaderRepository;
-import com.example.springboot.repositories.OPTRepository;
-import com.example.springboot.repositories.PaymentMethodRepository;
+import com.example.springboot.repositories.InvoiceHeaderSpecifications;
+import com.example.springboot.services.CustomerLookupService;
+import com.example.springboot.services.IdempotencyService;
+import com.example.springboot.services.InvoiceExportService;
 import com.example.springboot.services.InvoiceService;
-import com.example.springboot.services.StockService;
+import com.example.springboot.services.ReferenceDataRegistry;
+import com.example.springboot.services.StockReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -15,15 +17,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -34,17 +44,23 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Cabecalho Da Nota")
 public class InvoiceHeaderController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(InvoiceHeaderController.class, "getOneInvoiceHeader");
+
     @Autowired
     InvoiceHeaderRepository invoiceHeaderRepository;
+
     @Autowired
-    PaymentMethodRepository paymentMethodRepository;
+    private InvoiceService invoiceService;
     @Autowired
-    CustomerRepository customerRepository;
+    private StockReservationService stockReservationService;
     @Autowired
-    OPTRepository optRepository;
-
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+    @Autowired
+    private CustomerLookupService customerLookupService;
     @Autowired
-    private StockService stockService;
+    private InvoiceExportService invoiceExportService;
 
     @Operation(summary = "Realiza o cadastro do cabeçalho da nota", method = "POST")
     @ApiResponses(value = {
@@ -60,13 +76,20 @@ public class InvoiceHeaderController {
                     )),
             @ApiResponse(responseCode = "401", description = "CPF do cliente, ID do pagamento ou ID da operação não enconttrados",
                     content = @Content()),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já utilizada em outra requisição", content = @Content()),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor", content = @Content())
     })
     @PostMapping(value = "/invoice/header",consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Object> saveInvoiceHeader(@RequestBody @Valid InvoiceHeaderRecordDto invoiceHeaderRecordDto){
+    public ResponseEntity<Object> saveInvoiceHeader(@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                    @RequestBody @Valid InvoiceHeaderRecordDto invoiceHeaderRecordDto){
+        return idempotencyService.execute(idempotencyKey, "POST /invoice/header", invoiceHeaderRecordDto,
+                () -> createInvoiceHeader(invoiceHeaderRecordDto));
+    }
+
+    private ResponseEntity<Object> createInvoiceHeader(InvoiceHeaderRecordDto invoiceHeaderRecordDto){
         var invoiceHeaderModel = new InvoiceHeaderModel();
 
-        Optional<OPTModel> opt = optRepository.findById(invoiceHeaderRecordDto.optId());
+        Optional<OPTModel> opt = referenceDataRegistry.findOpt(invoiceHeaderRecordDto.optId());
         if(opt.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("OPT Not Found");
         }else{
@@ -77,7 +100,7 @@ public class InvoiceHeaderController {
         }
 
         if(invoiceHeaderRecordDto.paymentId() != null){
-            Optional<PaymentMethodModel> paymentMethod = paymentMethodRepository.findById(invoiceHeaderRecordDto.paymentId());
+            Optional<PaymentMethodModel> paymentMethod = referenceDataRegistry.findPaymentMethod(invoiceHeaderRecordDto.paymentId());
             if(paymentMethod.isEmpty()){
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method Not Found");
             }else{
@@ -86,7 +109,7 @@ public class InvoiceHeaderController {
         }
 
         if(invoiceHeaderRecordDto.customerCpf() != null){
-            Optional<CustomerModel> customerModel = customerRepository.findById(invoiceHeaderRecordDto.customerCpf());
+            Optional<CustomerModel> customerModel = customerLookupService.find(invoiceHeaderRecordDto.customerCpf());
             if(customerModel.isEmpty()){
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Customer Not Found");
             }else{
@@ -98,23 +121,74 @@ public class InvoiceHeaderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(invoiceHeaderRepository.save(invoiceHeaderModel));
     }
 
-    @Operation(summary = "Busca todos os cabeçalhos de nota cadastrados")
+    @Operation(summary = "Busca todos os cabeçalhos de nota cadastrados",
+            description = "Paginado por chave: informe em after o último número da nota recebido e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Cabecalhos da nota listados com sucesso", content = @Content()),
             @ApiResponse(responseCode = "204", description = "Sem cabeçalho da nota para listar", content = @Content())
     })
     @GetMapping("/invoice/header")
-    public ResponseEntity<List<InvoiceHeaderModel>> getAllInvoiceHeaders(){
-        List<InvoiceHeaderModel> invoiceHeaderList= invoiceHeaderRepository.findAll();
-        if(!invoiceHeaderList.isEmpty()){
-            for(InvoiceHeaderModel invoiceHeader : invoiceHeaderList){
-                Long id = invoiceHeader.getInvoiceNumber();
-                invoiceHeader.add(linkTo(methodOn(InvoiceHeaderController.class).getOneInvoiceHeader(id)).withSelfRel());
-            }
-        }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<InvoiceHeaderModel>> getAllInvoiceHeaders(@RequestParam(value = "after", required = false) Long after,
+                                                                         @RequestParam(value = "limit", required = false) Integer limit){
+        List<InvoiceHeaderModel> invoiceHeaderList= invoiceHeaderRepository.findByInvoiceNumberGreaterThanOrderByInvoiceNumber(
+                after == null ? 0L : after, KeysetPagination.fetchLimit(limit));
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(InvoiceHeaderModel invoiceHeader : invoiceHeaderList){
+            Long id = invoiceHeader.getInvoiceNumber();
+            invoiceHeader.add(selfLink.expand(id));
         }
-        return ResponseEntity.status(HttpStatus.OK).body(invoiceHeaderList);
+        return KeysetPagination.toResponse(invoiceHeaderList, limit, InvoiceHeaderModel::getInvoiceNumber);
+    }
+
+    @Operation(summary = "Pesquisa cabeçalhos de nota por período, cliente, confirmação e método de pagamento",
+            description = "Filtros opcionais: data de cadastro (yyyy-MM-dd, inclusivos), CPF do cliente, confirmação (S/N) e ID do método de pagamento. " +
+                    "Ordenado por data de cadastro e número da nota, paginado por chave: o link da próxima página (afterRegDate, afterInvoiceNumber) vem no cabeçalho Link")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cabeçalhos de nota encontrados", content = @Content()),
+            @ApiResponse(responseCode = "204", description = "Nenhum cabeçalho de nota encontrado", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Filtro inválido", content = @Content())
+    })
+    @GetMapping("/invoice/header/search")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<InvoiceHeaderModel>> searchInvoiceHeaders(@RequestParam(value = "regDateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateFrom,
+                                                                         @RequestParam(value = "regDateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateTo,
+                                                                         @RequestParam(value = "customerCpf", required = false) String customerCpf,
+                                                                         @RequestParam(value = "confirmed", required = false) @Pattern(regexp = "S|N", message = "O campo 'confirmed' deve ser 'S' ou 'N'") String confirmed,
+                                                                         @RequestParam(value = "paymentId", required = false) Long paymentId,
+                                                                         @RequestParam(value = "afterRegDate", required = false) LocalDateTime afterRegDate,
+                                                                         @RequestParam(value = "afterInvoiceNumber", required = false) Long afterInvoiceNumber,
+                                                                         @RequestParam(value = "limit", required = false) Integer limit){
+        var search = InvoiceHeaderSpecifications.search(
+                regDateFrom == null ? null : Timestamp.valueOf(regDateFrom.atStartOfDay()),
+                regDateTo == null ? null : Timestamp.valueOf(regDateTo.plusDays(1).atStartOfDay()),
+                customerCpf, confirmed, paymentId,
+                afterRegDate == null ? null : Timestamp.valueOf(afterRegDate), afterInvoiceNumber);
+        List<InvoiceHeaderModel> invoiceHeaderList = invoiceHeaderRepository.findBy(search, query -> query
+                .sortBy(InvoiceHeaderSpecifications.PAGE_ORDER)
+                .limit(KeysetPagination.fetchLimit(limit).max())
+                .all());
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(InvoiceHeaderModel invoiceHeader : invoiceHeaderList){
+            Long id = invoiceHeader.getInvoiceNumber();
+            invoiceHeader.add(selfLink.expand(id));
+        }
+        return KeysetPagination.toResponseWithCursor(invoiceHeaderList, limit, invoiceHeader -> Map.of(
+                "afterRegDate", invoiceHeader.getRegDate().toLocalDateTime(),
+                "afterInvoiceNumber", invoiceHeader.getInvoiceNumber()));
+    }
+
+    @Operation(summary = "Exporta os cabeçalhos das notas em NDJSON",
+            description = "Uma linha JSON por nota, lida do banco por cursor e escrita em streaming. Filtros opcionais por data de cadastro da nota (yyyy-MM-dd, inclusivos) e confirmação (S/N)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportação iniciada", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)),
+            @ApiResponse(responseCode = "400", description = "Filtro inválido", content = @Content())
+    })
+    @GetMapping(value = "/invoice/header/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportHeaders(@RequestParam(value = "regDateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateFrom,
+                                                               @RequestParam(value = "regDateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateTo,
+                                                               @RequestParam(value = "confirmed", required = false) @Pattern(regexp = "S|N", message = "O campo 'confirmed' deve ser 'S' ou 'N'") String confirmed){
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(invoiceExportService.exportHeaders(regDateFrom, regDateTo, confirmed));
     }
 
     @Operation(summary = "Busca um cabeçalho de nota a partir de um ID")
@@ -123,12 +197,13 @@ public class InvoiceHeaderController {
             @ApiResponse(responseCode = "404", description = "Cabeçalho de nota não encontrado", content = @Content())
     })
     @GetMapping("/invoice/header/{invoiceNumber}")
+    @Transactional(readOnly = true)
     public ResponseEntity<Object> getOneInvoiceHeader(@PathVariable(value = "invoiceNumber") Long invoiceNumber){
         Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
         if(invoiceHeader.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invoice Header not found. ");
         }
-        invoiceHeader.get().add(linkTo(methodOn(InvoiceHeaderController.class).getAllInvoiceHeaders()).withSelfRel());
+        invoiceHeader.get().add(linkTo(methodOn(InvoiceHeaderController.class).getAllInvoiceHeaders(null, null)).withSelfRel().expand());
         return ResponseEntity.status(HttpStatus.OK).body(invoiceHeader.get());
     }
 
@@ -164,15 +239,14 @@ public class InvoiceHeaderController {
         }
 
         if(invoiceHeaderRecordDto.paymentId() != null){
-            Optional<PaymentMethodModel> paymentMethod = paymentMethodRepository.findById(invoiceHeaderRecordDto.paymentId());
+            Optional<PaymentMethodModel> paymentMethod = referenceDataRegistry.findPaymentMethod(invoiceHeaderRecordDto.paymentId());
             if(paymentMethod.isEmpty()){
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method Not Found");
             }
         }
 
         if(invoiceHeaderRecordDto.customerCpf() != null){
-            Optional<CustomerModel> customerModel = customerRepository.findById(invoiceHeaderRecordDto.customerCpf());
-            if(customerModel.isEmpty()){
+            if(!customerLookupService.exists(invoiceHeaderRecordDto.customerCpf())){
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Customer Not Found");
             }
         }
@@ -187,6 +261,7 @@ public class InvoiceHeaderController {
             @ApiResponse(responseCode = "404", description = "Cabeçalho da nota não encontrado", content = @Content())
     })
     @DeleteMapping("/invoice/header/{invoiceNumber}")
+    @Transactional
     public ResponseEntity<Object> deleteInvoiceHeader(@PathVariable(value = "invoiceNumber") Long invoiceNumber) {
         Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
         if (invoiceHeader.isEmpty()) {
@@ -196,6 +271,7 @@ public class InvoiceHeaderController {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("Invoice Header already confirmed");
             }
         }
+        stockReservationService.releaseInvoice(invoiceNumber);
         invoiceHeaderRepository.delete(invoiceHeader.get());
         return ResponseEntity.status(HttpStatus.OK).body("Invoice Header delete successfully");
     }
@@ -217,7 +293,7 @@ public class InvoiceHeaderController {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("Invoice Header already confirmed");
             }
         }
-        Optional<PaymentMethodModel> paymentMethod = paymentMethodRepository.findById(paymentMethodId);
+        Optional<PaymentMethodModel> paymentMethod = referenceDataRegistry.findPaymentMethod(paymentMethodId);
         if(paymentMethod.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method Not Found");
         }
@@ -232,11 +308,18 @@ public class InvoiceHeaderController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Cabeçalho da nota confirmado com sucesso", content = @Content()),
             @ApiResponse(responseCode = "400", description = "Cabeçalho da nota já confirmado ou valor da nota zerado", content = @Content()),
-            @ApiResponse(responseCode = "404", description = "Cabeçalho da nota não encontrado", content = @Content())
+            @ApiResponse(responseCode = "404", description = "Cabeçalho da nota não encontrado", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Estoque insuficiente - todos os produtos em falta são listados", content = @Content()),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já utilizada em outra requisição", content = @Content())
     })
     @PutMapping(value = "/invoice/header/{invoiceNumber}/confirm")
-    public ResponseEntity<Object> confirmInvoiceHeader(@PathVariable(value = "invoiceNumber") Long invoiceNumber){
+    public ResponseEntity<Object> confirmInvoiceHeader(@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                       @PathVariable(value = "invoiceNumber") Long invoiceNumber){
+        return idempotencyService.execute(idempotencyKey, "PUT /invoice/header/confirm", invoiceNumber,
+                () -> confirm(invoiceNumber));
+    }
 
+    private ResponseEntity<Object> confirm(Long invoiceNumber){
         Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
         if(invoiceHeader.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invoice Header Not Found");
@@ -251,17 +334,22 @@ public class InvoiceHeaderController {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("Payment method is required");
             }
         }
-        //TODO - UPDATE DE ESTOQUE
-        try{
-            stockService.updateStock(invoiceHeader.get().getInvoiceNumber());
-        }catch(Exception e){
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        }
-        var invoiceHeaderModel = invoiceHeader.get();
-        invoiceHeaderModel.setConfirmed("S");
-
-        return ResponseEntity.status(HttpStatus.OK).body(invoiceHeaderRepository.save(invoiceHeaderModel));
+        return ResponseEntity.status(HttpStatus.OK).body(invoiceService.confirmInvoice(invoiceHeader.get()));
     }
 
+    @Operation(summary = "Recalcula o valor total da nota a partir de todos os seus itens", method = "PUT",
+            description = "O total é mantido de forma incremental a cada item; este recálculo serve como verificação")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Valor total recalculado com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "Cabeçalho da nota não encontrado", content = @Content())
+    })
+    @PutMapping(value = "/invoice/header/{invoiceNumber}/recalculate")
+    public ResponseEntity<Object> recalculateInvoiceHeaderTotalAmount(@PathVariable(value = "invoiceNumber") Long invoiceNumber){
+        Optional<InvoiceHeaderModel> invoiceHeader = invoiceService.recalculateTotalAmount(invoiceNumber);
+        if(invoiceHeader.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invoice Header Not Found");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(invoiceHeader.get());
+    }
 
 }
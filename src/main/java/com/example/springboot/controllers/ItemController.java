@@ -1,10 +1,17 @@
 package com.example.springboot.controllers;
 
+import com.example.springboot.dtos.ItemBatchLineResultDto;
+import com.example.springboot.dtos.ItemBatchRecordDto;
 import com.example.springboot.dtos.ItemRecordDto;
 import com.example.springboot.dtos.ProductRecordDto;
 import com.example.springboot.models.*;
 import com.example.springboot.repositories.*;
+import com.example.springboot.services.IdempotencyService;
+import com.example.springboot.services.InvoiceExportService;
 import com.example.springboot.services.InvoiceService;
+import com.example.springboot.services.ProductCacheService;
+import com.example.springboot.services.ProductCacheService.ProductSnapshot;
+import com.example.springboot.services.StockReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -12,14 +19,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -31,6 +43,8 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Item")
 public class ItemController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(ItemController.class, "getOneItem");
+
     @Autowired
     private ItemRepository itemRepository;
     @Autowired
@@ -41,6 +55,14 @@ public class ItemController {
 
     @Autowired
     private InvoiceService invoiceService;
+    @Autowired
+    private ProductCacheService productCacheService;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private InvoiceExportService invoiceExportService;
 
 
 
@@ -59,16 +81,23 @@ public class ItemController {
                             examples = @ExampleObject(value = "{ \"invoiceNumber\": \"7\", \"barCode\": \"abs\" }")
                     )),
             @ApiResponse(responseCode = "404", description = "Produto/Cabecalho da nota não encontrados", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Produto inativo, nota já confirmada ou, com reserva de estoque ativa, estoque insuficiente", content = @Content()),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já utilizada em outra requisição", content = @Content()),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor", content = @Content())
     })
     @PostMapping(value = "/invoice/item", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Object> saveItem(@RequestBody @Valid ItemRecordDto itemRecordDto) {
+    @Transactional
+    public ResponseEntity<Object> saveItem(@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                           @RequestBody @Valid ItemRecordDto itemRecordDto) {
+        return idempotencyService.execute(idempotencyKey, "POST /invoice/item", itemRecordDto, () -> createItem(itemRecordDto));
+    }
 
-        Optional<ProductModel> product = productRepository.findByBarCode(itemRecordDto.barCode());
+    private ResponseEntity<Object> createItem(ItemRecordDto itemRecordDto) {
+        Optional<ProductSnapshot> product = productCacheService.findByBarCode(itemRecordDto.barCode());
         if(product.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product Not Found");
         }else{
-            if(product.get().getActive().equals("N")){
+            if(product.get().active().equals("N")){
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("Product is not active");
             }
         }
@@ -83,38 +112,89 @@ public class ItemController {
 
         var itemModel = new ItemModel();
 
-        itemModel.setProduct(product.get());
+        itemModel.setProduct(productRepository.getReferenceById(product.get().idProduct()));
+        itemModel.setUnitPrice(product.get().productValue());
         itemModel.setInvoiceHeader(invoiceHeader.get());
 
 
         BeanUtils.copyProperties(itemRecordDto, itemModel);
 
         ItemModel savedItem = itemRepository.save(itemModel);
+        stockReservationService.reserve(savedItem);
 
-        invoiceService.updateTotalAmount(itemRecordDto.invoiceNumber());
+        invoiceService.applyTotalAmountDelta(invoiceHeader.get(), invoiceService.itemAmount(savedItem));
 
         return ResponseEntity.status(HttpStatus.CREATED).body(savedItem);
     }
 
-    @Operation(summary = "Busca todos os itens de todos os pedidos já realizados")
+    @Operation(summary = "Realiza o cadastro de um lote de itens no pedido"
+            , method = "POST"
+            , description = "Os códigos de barras do lote são resolvidos de uma só vez e o total da nota é atualizado uma única vez. Linhas inválidas são reportadas individualmente sem rejeitar o restante do lote")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Todos os itens cadastrados com sucesso",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{ \"items\": [ { \"barCode\": 123456, \"qty\": 2 }, { \"barCode\": 654321, \"qty\": 1 } ] }")
+                    )),
+            @ApiResponse(responseCode = "207", description = "Lote processado parcialmente - consulte o status de cada linha", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Requisição inválida: \n- Lote vazio\n- Lote maior que o permitido", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "Cabecalho da nota não encontrado", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Nota já confirmada", content = @Content()),
+            @ApiResponse(responseCode = "500", description = "Erro interno do servidor", content = @Content())
+    })
+    @PostMapping(value = "/invoice/{invoiceNumber}/items:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Transactional
+    public ResponseEntity<Object> saveItemsBatch(@PathVariable(value = "invoiceNumber") Long invoiceNumber,
+                                                 @RequestBody @Valid ItemBatchRecordDto itemBatchRecordDto) {
+
+        Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
+        if(invoiceHeader.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invoice Header Not Found");
+        }else{
+            if(invoiceHeader.get().getConfirmed().equals("S")){
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Invoice already confirmed");
+            }
+        }
+
+        List<ItemBatchLineResultDto> results = invoiceService.addItems(invoiceHeader.get(), itemBatchRecordDto.items());
+
+        boolean allCreated = results.stream().allMatch(result -> result.status() == HttpStatus.CREATED.value());
+        return ResponseEntity.status(allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(results);
+    }
+
+    @Operation(summary = "Busca todos os itens de todos os pedidos já realizados",
+            description = "Paginado por chave: informe em after o último sequencial do item recebido e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Itens listados com sucesso", content = @Content()),
             @ApiResponse(responseCode = "204", description = "Sem itens para listar", content = @Content())
     })
     @GetMapping("/invoice/item")
-    public ResponseEntity<List<ItemModel>> getAllItems(){
-        List<ItemModel> itemList= itemRepository.findAll();
-        if(!itemList.isEmpty()){
-            for(ItemModel item : itemList){
-                Long sequencial = item.getSequential();
-                Long invoiceNumber = item.getInvoiceHeader().getInvoiceNumber();
-
-                item.add(linkTo(methodOn(ItemController.class).getOneItem(sequencial, invoiceNumber)).withSelfRel());
-            }
-        }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<ItemModel>> getAllItems(@RequestParam(value = "after", required = false) Long after,
+                                                       @RequestParam(value = "limit", required = false) Integer limit){
+        List<ItemModel> itemList= itemRepository.findBySequentialGreaterThanOrderBySequential(
+                after == null ? 0L : after, KeysetPagination.fetchLimit(limit));
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(ItemModel item : itemList){
+            Long sequencial = item.getSequential();
+            Long invoiceNumber = item.getInvoiceHeader().getInvoiceNumber();
+
+            item.add(selfLink.expand(sequencial, invoiceNumber));
         }
-        return ResponseEntity.status(HttpStatus.OK).body(itemList);
+        return KeysetPagination.toResponse(itemList, limit, ItemModel::getSequential);
+    }
+
+    @Operation(summary = "Exporta os itens das notas em NDJSON",
+            description = "Uma linha JSON por item, com os dados da nota, lida do banco por cursor e escrita em streaming. Filtros opcionais por data de cadastro da nota (yyyy-MM-dd, inclusivos) e confirmação (S/N)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportação iniciada", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)),
+            @ApiResponse(responseCode = "400", description = "Filtro inválido", content = @Content())
+    })
+    @GetMapping(value = "/invoice/item/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportItems(@RequestParam(value = "regDateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateFrom,
+                                                             @RequestParam(value = "regDateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate regDateTo,
+                                                             @RequestParam(value = "confirmed", required = false) @Pattern(regexp = "S|N", message = "O campo 'confirmed' deve ser 'S' ou 'N'") String confirmed){
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(invoiceExportService.exportItems(regDateFrom, regDateTo, confirmed));
     }
 
     @Operation(summary = "Busca todos os itens de um pedido pelo número do invoice")
@@ -124,6 +204,7 @@ public class ItemController {
             @ApiResponse(responseCode = "404", description = "Invoice não encontrado", content = @Content())
     })
     @GetMapping("/invoice/items/{invoiceNumber}")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<ItemModel>> getAllItemsOfOneInvoice(
             @PathVariable("invoiceNumber") Long invoiceNumber) {
 
@@ -133,9 +214,10 @@ public class ItemController {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
 
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
         for (ItemModel item : itemList) {
             Long sequencial = item.getSequential();
-            item.add(linkTo(methodOn(ItemController.class).getOneItem(sequencial, invoiceNumber)).withSelfRel());
+            item.add(selfLink.expand(sequencial, invoiceNumber));
         }
 
         return ResponseEntity.status(HttpStatus.OK).body(itemList);
@@ -147,13 +229,14 @@ public class ItemController {
             @ApiResponse(responseCode = "404", description = "Sequencial/número único não encontrados", content = @Content())
     })
     @GetMapping("/invoice/item/{sequencial}/{invoiceNumber}")
+    @Transactional(readOnly = true)
     public ResponseEntity<Object> getOneItem(@PathVariable(value = "sequencial") Long sequencial
                                             , @PathVariable(value = "invoiceNumber") Long invoiceNumber){
-        Optional<ItemModel> item = itemRepository.findById(new ItemId(sequencial, invoiceNumber));
+        Optional<ItemModel> item = itemRepository.findById(new ItemId(invoiceNumber, sequencial));
         if(item.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Item not found. ");
         }
-        item.get().add(linkTo(methodOn(ItemController.class).getAllItems()).withSelfRel());
+        item.get().add(linkTo(methodOn(ItemController.class).getAllItems(null, null)).withSelfRel().expand());
         return ResponseEntity.status(HttpStatus.OK).body(item.get());
     }
 
@@ -164,35 +247,58 @@ public class ItemController {
                             mediaType = "application/json",
                             examples = @ExampleObject(value = "{ \"invoiceNumber\": 7, \"barCode\": \"123456\", \"qty\": 10 }")
                     )),
-            @ApiResponse(responseCode = "400", description = "Requisição inválida: \n- Campos obrigatórios não preenchidos\n- Formato de dados inválido\n- Valores fora do intervalo permitido",
+            @ApiResponse(responseCode = "400", description = "Requisição inválida: \n- Campos obrigatórios não preenchidos\n- Formato de dados inválido\n- Valores fora do intervalo permitido\n- Número da nota no corpo diferente do informado na URL",
                     content = @Content(
                             mediaType = "application/json",
                             examples = @ExampleObject(value = "{ \"invoiceNumber\": \"7\", \"barCode\": \"abs\" }")
                     )),
             @ApiResponse(responseCode = "404", description = "Item/produto/Cabeçalho da nota não encontrados", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Nota já confirmada", content = @Content()),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor", content = @Content())
     })
     @PutMapping("/invoice/item/{sequencial}/{invoiceNumber}")
+    @Transactional
     public ResponseEntity<Object> updateItem(@PathVariable(value = "sequencial") Long sequencial
                                                  , @PathVariable(value = "invoiceNumber") Long invoiceNumber
                                                 ,  @RequestBody @Valid ItemRecordDto itemRecordDto){
 
-        Optional<ProductModel> product = productRepository.findByBarCode(itemRecordDto.barCode());
+        // Items cannot move between invoices, and the confirmed check must be on the invoice that owns the item
+        if(!invoiceNumber.equals(itemRecordDto.invoiceNumber())){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invoice number in the body does not match the path");
+        }
+        Optional<ProductSnapshot> product = productCacheService.findByBarCode(itemRecordDto.barCode());
         if(product.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product Not Found");
         }
-        Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(itemRecordDto.invoiceNumber());
+        Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
         if(invoiceHeader.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invoice Header Not Found");
+        }else{
+            if(invoiceHeader.get().getConfirmed().equals("S")){
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Invoice already confirmed");
+            }
         }
-        Optional<ItemModel> itemModel = itemRepository.findById(new ItemId(sequencial, invoiceNumber));
+        Optional<ItemModel> itemModel = itemRepository.findById(new ItemId(invoiceNumber, sequencial));
         if(itemModel.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Item Not Found");
         }
+        BigDecimal previousAmount = invoiceService.itemAmount(itemModel.get());
 
+        // The item keeps the price it was added at unless it now points to another product
+        if(itemModel.get().getUnitPrice() == null || !itemModel.get().getProduct().getIdProduct().equals(product.get().idProduct())){
+            itemModel.get().setUnitPrice(product.get().productValue());
+        }
+        itemModel.get().setProduct(productRepository.getReferenceById(product.get().idProduct()));
         BeanUtils.copyProperties(itemRecordDto, itemModel.get());
 
-        return ResponseEntity.status(HttpStatus.OK).body(itemRepository.save(itemModel.get()));
+        ItemModel savedItem = itemRepository.save(itemModel.get());
+        stockReservationService.release(invoiceNumber, sequencial);
+        stockReservationService.reserve(savedItem);
+
+        invoiceService.applyTotalAmountDelta(savedItem.getInvoiceHeader(),
+                invoiceService.itemAmount(savedItem).subtract(previousAmount));
+
+        return ResponseEntity.status(HttpStatus.OK).body(savedItem);
     }
 
     @Operation(summary = "Deleta um um item a partir de um sequencial e de um numero unico do cabeçalho respectivamente", method = "DELETE")
@@ -201,9 +307,10 @@ public class ItemController {
             @ApiResponse(responseCode = "404", description = "Sequencial/número único não encontrados", content = @Content())
     })
     @DeleteMapping("/invoice/item/{sequencial}/{invoiceNumber}")
+    @Transactional
     public ResponseEntity<Object> deleteItem(@PathVariable(value = "sequencial") Long sequencial
                                             , @PathVariable(value = "invoiceNumber") Long invoiceNumber) {
-        Optional<ItemModel> item = itemRepository.findById(new ItemId(sequencial, invoiceNumber));
+        Optional<ItemModel> item = itemRepository.findById(new ItemId(invoiceNumber, sequencial));
         if (item.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Item Not Found");
         }
@@ -216,8 +323,9 @@ public class ItemController {
             }
         }
         itemRepository.delete(item.get());
+        stockReservationService.release(invoiceNumber, sequencial);
 
-        invoiceService.updateTotalAmount(item.get().getInvoiceHeader().getInvoiceNumber());
+        invoiceService.applyTotalAmountDelta(invoiceHeader.get(), invoiceService.itemAmount(item.get()).negate());
         return ResponseEntity.status(HttpStatus.OK).body("Item delete successfully");
     }
 
@@ -0,0 +1,63 @@
+package com.example.springboot.controllers;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+// List endpoints page by key (?after=<last key>&limit=) so deep pages cost the same as the first one
+final class KeysetPagination {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    // Generated product ids are never the nil UUID, which sorts first in the database
+    static final UUID FIRST_UUID = new UUID(0L, 0L);
+
+    private KeysetPagination() {
+    }
+
+    static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // One row past the page is read to know whether a next page exists
+    static Limit fetchLimit(Integer limit) {
+        return Limit.of(pageSize(limit) + 1);
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(List<T> rows, Integer limit, Function<T, Object> cursor) {
+        return toResponse(rows, limit, "after", cursor);
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(List<T> rows, Integer limit, String cursorParam, Function<T, Object> cursor) {
+        return toResponseWithCursor(rows, limit, row -> Map.of(cursorParam, cursor.apply(row)));
+    }
+
+    // For keys spanning several columns, each one travels in its own query parameter
+    static <T> ResponseEntity<List<T>> toResponseWithCursor(List<T> rows, Integer limit, Function<T, Map<String, Object>> cursor) {
+        if(rows.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+        int pageSize = pageSize(limit);
+        if(rows.size() <= pageSize){
+            return ResponseEntity.status(HttpStatus.OK).body(rows);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest();
+        cursor.apply(page.get(pageSize - 1)).forEach(next::replaceQueryParam);
+        next.replaceQueryParam("limit", pageSize);
+        return ResponseEntity.status(HttpStatus.OK)
+                .header(HttpHeaders.LINK, Link.of(next.toUriString(), IanaLinkRelations.NEXT).toString())
+                .body(page);
+    }
+}
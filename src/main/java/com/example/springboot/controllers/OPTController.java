@@ -3,6 +3,9 @@ package com.example.springboot.controllers;
 import com.example.springboot.dtos.OPTRecordDto;
 import com.example.springboot.models.OPTModel;
 import com.example.springboot.repositories.OPTRepository;
+import com.example.springboot.services.Catalog;
+import com.example.springboot.services.CatalogVersionService;
+import com.example.springboot.services.ReferenceDataRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -16,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,9 +31,17 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "OPT's - Tipos de Operação")
 public class OPTController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(OPTController.class, "getOneOpt");
+
     @Autowired
     OPTRepository optRepository;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+
 
     @Operation(summary = "Realiza o cadastro do OPT", method = "POST")
     @ApiResponses(value = {
@@ -49,27 +61,36 @@ public class OPTController {
     public ResponseEntity<OPTModel> saveOPT(@RequestBody @Valid OPTRecordDto optRecordDto){
         var optModel = new OPTModel();
         BeanUtils.copyProperties(optRecordDto, optModel);
-        return ResponseEntity.status(HttpStatus.CREATED).body(optRepository.save(optModel));
+        OPTModel optModelSaved = optRepository.save(optModel);
+        catalogVersionService.bump(Catalog.OPTS);
+        referenceDataRegistry.refresh();
+        return ResponseEntity.status(HttpStatus.CREATED).body(optModelSaved);
     }
 
 
     @Operation(summary = "Busca todos os OPT's cadastrados")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OPT's listados com sucesso", content = @Content()),
-            @ApiResponse(responseCode = "204", description = "Sem OPT para listar", content = @Content())
+            @ApiResponse(responseCode = "204", description = "Sem OPT para listar", content = @Content()),
+            @ApiResponse(responseCode = "304", description = "OPT's não alterados desde o ETag informado em If-None-Match", content = @Content())
     })
     @GetMapping("/opts")
-    public ResponseEntity<List<OPTModel>> getAllOpts(){
+    public ResponseEntity<List<OPTModel>> getAllOpts(WebRequest webRequest){
+        ConditionalGet conditionalGet = ConditionalGet.of(catalogVersionService, Catalog.OPTS);
+        if(conditionalGet.isNotModified(webRequest)){
+            return conditionalGet.notModified();
+        }
         List<OPTModel> optsList= optRepository.findAll();
         if(!optsList.isEmpty()){
+            SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
             for(OPTModel opt : optsList){
                 Long id = opt.getIdOpt();
-                opt.add(linkTo(methodOn(OPTController.class).getOneOpt(id)).withSelfRel());
+                opt.add(selfLink.expand(id));
             }
         }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+            return conditionalGet.withValidators(ResponseEntity.status(HttpStatus.NO_CONTENT).build());
         }
-        return ResponseEntity.status(HttpStatus.OK).body(optsList);
+        return conditionalGet.withValidators(ResponseEntity.status(HttpStatus.OK).body(optsList));
     }
 
     @Operation(summary = "Busca um OPT a partir de um ID")
@@ -83,7 +104,7 @@ public class OPTController {
         if(opt.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("OPT not found. ");
         }
-        opt.get().add(linkTo(methodOn(OPTController.class).getAllOpts()).withSelfRel());
+        opt.get().add(linkTo(methodOn(OPTController.class).getAllOpts(null)).withSelfRel());
         return ResponseEntity.status(HttpStatus.OK).body(opt.get());
     }
 
@@ -113,7 +134,10 @@ public class OPTController {
         var optModel = opt.get();
         BeanUtils.copyProperties(optRecordDto, optModel);
 
-        return ResponseEntity.status(HttpStatus.OK).body(optRepository.save(optModel));
+        OPTModel optModelSaved = optRepository.save(optModel);
+        catalogVersionService.bump(Catalog.OPTS);
+        referenceDataRegistry.refresh();
+        return ResponseEntity.status(HttpStatus.OK).body(optModelSaved);
     }
 
     @Operation(summary = "Deleta um OPT a partir de um ID", method = "DELETE")
@@ -128,6 +152,8 @@ public class OPTController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("OPT Not Found");
         }
         optRepository.delete(opt.get());
+        catalogVersionService.bump(Catalog.OPTS);
+        referenceDataRegistry.refresh();
         return ResponseEntity.status(HttpStatus.OK).body("OPT delete successfully");
     }
 }
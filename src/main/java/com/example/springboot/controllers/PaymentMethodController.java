@@ -5,6 +5,9 @@ import com.example.springboot.dtos.ProductRecordDto;
 import com.example.springboot.models.PaymentMethodModel;
 import com.example.springboot.models.ProductModel;
 import com.example.springboot.repositories.PaymentMethodRepository;
+import com.example.springboot.services.Catalog;
+import com.example.springboot.services.CatalogVersionService;
+import com.example.springboot.services.ReferenceDataRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -18,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,9 +34,17 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Método de Pagamento")
 public class PaymentMethodController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(PaymentMethodController.class, "getOnePaymentMethod");
+
     @Autowired
     PaymentMethodRepository paymentMethodRepository;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ReferenceDataRegistry referenceDataRegistry;
+
     @Operation(summary = "Realiza o cadastro do método de pagamento", method = "POST")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Método de pagamento cadastrado com sucesso",
@@ -53,26 +65,35 @@ public class PaymentMethodController {
     public ResponseEntity<PaymentMethodModel> savePaymentMethod(@RequestBody @Valid PaymentMethodRecordDto paymentMethodRecordDto){
         var paymentMethodModel = new PaymentMethodModel();
         BeanUtils.copyProperties(paymentMethodRecordDto, paymentMethodModel);
-        return ResponseEntity.status(HttpStatus.CREATED).body(paymentMethodRepository.save(paymentMethodModel));
+        PaymentMethodModel paymentMethodModelSaved = paymentMethodRepository.save(paymentMethodModel);
+        catalogVersionService.bump(Catalog.PAYMENT_METHODS);
+        referenceDataRegistry.refresh();
+        return ResponseEntity.status(HttpStatus.CREATED).body(paymentMethodModelSaved);
     }
 
     @Operation(summary = "Busca todos os métodos de pagamento cadastrados")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Métodos de pagamento listados com sucesso", content = @Content()),
-            @ApiResponse(responseCode = "204", description = "Sem métodos de pagamento para listar", content = @Content())
+            @ApiResponse(responseCode = "204", description = "Sem métodos de pagamento para listar", content = @Content()),
+            @ApiResponse(responseCode = "304", description = "Métodos de pagamento não alterados desde o ETag informado em If-None-Match", content = @Content())
     })
     @GetMapping("/paymentMethod")
-    public ResponseEntity<List<PaymentMethodModel>> getAllPaymentMethod(){
+    public ResponseEntity<List<PaymentMethodModel>> getAllPaymentMethod(WebRequest webRequest){
+        ConditionalGet conditionalGet = ConditionalGet.of(catalogVersionService, Catalog.PAYMENT_METHODS);
+        if(conditionalGet.isNotModified(webRequest)){
+            return conditionalGet.notModified();
+        }
         List<PaymentMethodModel> paymentList= paymentMethodRepository.findAll();
         if(!paymentList.isEmpty()){
+            SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
             for(PaymentMethodModel payment : paymentList){
                 Long id = payment.getIdPmt();
-                payment.add(linkTo(methodOn(PaymentMethodController.class).getOnePaymentMethod(id)).withSelfRel());
+                payment.add(selfLink.expand(id));
             }
         }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+            return conditionalGet.withValidators(ResponseEntity.status(HttpStatus.NO_CONTENT).build());
         }
-        return ResponseEntity.status(HttpStatus.OK).body(paymentList);
+        return conditionalGet.withValidators(ResponseEntity.status(HttpStatus.OK).body(paymentList));
     }
 
     @Operation(summary = "Busca um método de pagamento a partir de um ID")
@@ -86,7 +107,7 @@ public class PaymentMethodController {
         if(payment.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method not found. ");
         }
-        payment.get().add(linkTo(methodOn(PaymentMethodController.class).getAllPaymentMethod()).withSelfRel());
+        payment.get().add(linkTo(methodOn(PaymentMethodController.class).getAllPaymentMethod(null)).withSelfRel());
         return ResponseEntity.status(HttpStatus.OK).body(payment.get());
     }
 
@@ -116,7 +137,10 @@ public class PaymentMethodController {
         var paymentMethodModel = payment.get();
         BeanUtils.copyProperties(paymentMethodRecordDto, paymentMethodModel);
 
-        return ResponseEntity.status(HttpStatus.OK).body(paymentMethodRepository.save(paymentMethodModel));
+        PaymentMethodModel paymentMethodModelSaved = paymentMethodRepository.save(paymentMethodModel);
+        catalogVersionService.bump(Catalog.PAYMENT_METHODS);
+        referenceDataRegistry.refresh();
+        return ResponseEntity.status(HttpStatus.OK).body(paymentMethodModelSaved);
     }
 
     @Operation(summary = "Deleta um método de pagamento a partir de um ID", method = "DELETE")
@@ -132,6 +156,8 @@ public class PaymentMethodController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment Method Not Found");
         }
         paymentMethodRepository.delete(payment.get());
+        catalogVersionService.bump(Catalog.PAYMENT_METHODS);
+        referenceDataRegistry.refresh();
         return ResponseEntity.status(HttpStatus.OK).body("Payment Method delete successfully");
     }
 }
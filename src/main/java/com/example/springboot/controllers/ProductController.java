@@ -1,8 +1,18 @@
 package com.example.springboot.controllers;
 
+import com.example.springboot.dtos.ProductChangeDto;
+import com.example.springboot.dtos.ProductImportResultDto;
 import com.example.springboot.dtos.ProductRecordDto;
+import com.example.springboot.dtos.ProductResponseDto;
 import com.example.springboot.models.ProductModel;
 import com.example.springboot.repositories.ProductRepository;
+import com.example.springboot.services.Catalog;
+import com.example.springboot.services.CatalogVersionService;
+import com.example.springboot.services.ProductCacheService;
+import com.example.springboot.services.ProductChangeService;
+import com.example.springboot.services.ProductImportFormat;
+import com.example.springboot.services.ProductImportService;
+import com.example.springboot.services.ProductSearchService;
 import com.example.springboot.services.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,12 +23,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,12 +45,29 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Produto")
 public class ProductController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(ProductController.class, "getOneProduct");
+
     @Autowired
     ProductRepository productRepository;
 
     @Autowired
     private StockService stockService;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
     @Operation(summary = "Realiza o cadastro do produto", method = "POST")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Produto cadastrado com sucesso",
@@ -55,29 +88,101 @@ public class ProductController {
         var productModel = new ProductModel();
         BeanUtils.copyProperties(productRecordDto, productModel);
 
-        ProductModel productModelSaved = productRepository.save(productModel);
+        ProductModel productModelSaved = productChangeService.save(productModel);
 
         stockService.createStock(productModelSaved.getIdProduct());
+        productCacheService.evict(productModelSaved.getBarCode());
+        catalogVersionService.bump(Catalog.PRODUCTS);
+        productSearchService.refresh();
 
         return ResponseEntity.status(HttpStatus.CREATED).body(productModelSaved);
     }
 
-    @Operation(summary = "Busca todos os produtos cadastrados")
+    @Operation(summary = "Importa produtos em massa a partir de CSV ou NDJSON", method = "POST",
+            description = "O corpo é lido linha a linha e gravado em blocos, cada produto novo já com sua linha de estoque. " +
+                    "Produtos com o mesmo barCode são atualizados. CSV separado por vírgula, com cabeçalho usando os nomes dos campos " +
+                    "(name,productValue,barCode,weight,active) e ponto como separador decimal; NDJSON com um produto por linha. " +
+                    "Linhas inválidas são rejeitadas individualmente sem interromper a importação")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importação concluída, com os totais e as linhas rejeitadas",
+                    content = @Content(
+                            mediaType = "text/csv",
+                            examples = @ExampleObject(value = "name,productValue,barCode,weight,active\n\"Caixa de Ovos, 4UN\",5.60,90274930283,0.3,Y")
+                    )),
+            @ApiResponse(responseCode = "400", description = "Cabeçalho do CSV com coluna desconhecida ou repetida", content = @Content()),
+            @ApiResponse(responseCode = "415", description = "Content-Type diferente de text/csv e application/x-ndjson", content = @Content())
+    })
+    @PostMapping(value = "/products/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Object> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                 InputStream body) throws IOException {
+        ProductImportFormat format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? ProductImportFormat.NDJSON : ProductImportFormat.CSV;
+        ProductImportResultDto result;
+        try{
+            result = productImportService.importProducts(body,
+                    contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset(), format);
+        }catch(IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    @Operation(summary = "Busca todos os produtos cadastrados",
+            description = "Paginado por chave: informe em after o último ID do produto recebido e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Produtos listados com sucesso", content = @Content()),
-            @ApiResponse(responseCode = "204", description = "Sem produtos para listar", content = @Content())
+            @ApiResponse(responseCode = "204", description = "Sem produtos para listar", content = @Content()),
+            @ApiResponse(responseCode = "304", description = "Catálogo de produtos não alterado desde o ETag informado em If-None-Match", content = @Content())
     })
     @GetMapping("/products")
-    public ResponseEntity<List<ProductModel>> getAllProducts(){
-        List<ProductModel> productsList= productRepository.findAll();
-        if(!productsList.isEmpty()){
-            for(ProductModel product : productsList){
-                UUID id = product.getIdProduct();
-                product.add(linkTo(methodOn(ProductController.class).getOneProduct(id)).withSelfRel());
-            }
-        }else{
+    public ResponseEntity<List<ProductResponseDto>> getAllProducts(@RequestParam(value = "after", required = false) UUID after,
+                                                                   @RequestParam(value = "limit", required = false) Integer limit,
+                                                                   WebRequest webRequest){
+        ConditionalGet conditionalGet = ConditionalGet.of(catalogVersionService, Catalog.PRODUCTS);
+        if(conditionalGet.isNotModified(webRequest)){
+            return conditionalGet.notModified();
+        }
+        List<ProductResponseDto> productsList= productRepository.findResponsePage(
+                after == null ? KeysetPagination.FIRST_UUID : after, KeysetPagination.fetchLimit(limit));
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(ProductResponseDto product : productsList){
+            UUID id = product.getIdProduct();
+            product.add(selfLink.expand(id));
+        }
+        return conditionalGet.withValidators(KeysetPagination.toResponse(productsList, limit, ProductResponseDto::getIdProduct));
+    }
+
+    @Operation(summary = "Busca os produtos criados, alterados ou excluídos após uma versão",
+            description = "Informe em since a maior changeVersion já aplicada (0 para o catálogo completo) e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alterações listadas com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "204", description = "Sem alterações após a versão informada", content = @Content())
+    })
+    @GetMapping("/products/changes")
+    public ResponseEntity<List<ProductChangeDto>> getProductChanges(@RequestParam(value = "since", defaultValue = "0") Long since,
+                                                                    @RequestParam(value = "limit", required = false) Integer limit){
+        List<ProductChangeDto> changes = productChangeService.findChangesSince(since, KeysetPagination.fetchLimit(limit));
+        return KeysetPagination.toResponse(changes, limit, "since", ProductChangeDto::changeVersion);
+    }
+
+    @Operation(summary = "Busca produtos pelo nome",
+            description = "Encontra os produtos com alguma palavra do nome começando por cada palavra de q, sem diferenciar maiúsculas nem acentos. limit de 1 a 100, padrão 20")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Produtos encontrados", content = @Content()),
+            @ApiResponse(responseCode = "204", description = "Nenhum produto encontrado", content = @Content())
+    })
+    @GetMapping("/products/search")
+    public ResponseEntity<List<ProductResponseDto>> searchProducts(@RequestParam(value = "q") String query,
+                                                                   @RequestParam(value = "limit", defaultValue = "20") int limit){
+        List<ProductResponseDto> productsList = productSearchService.search(query, Math.max(1, Math.min(limit, 100)));
+        if(productsList.isEmpty()){
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(ProductResponseDto product : productsList){
+            UUID id = product.getIdProduct();
+            product.add(selfLink.expand(id));
+        }
         return ResponseEntity.status(HttpStatus.OK).body(productsList);
     }
 
@@ -89,11 +194,11 @@ public class ProductController {
     })
     @GetMapping("/products/{id}")
     public ResponseEntity<Object> getOneProduct(@PathVariable(value = "id") UUID id){
-        Optional<ProductModel> product = productRepository.findById(id);
+        Optional<ProductResponseDto> product = productRepository.findResponseById(id);
         if(product.isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found. ");
         }
-        product.get().add(linkTo(methodOn(ProductController.class).getAllProducts()).withSelfRel());
+        product.get().add(linkTo(methodOn(ProductController.class).getAllProducts(null, null, null)).withSelfRel().expand());
         return ResponseEntity.status(HttpStatus.OK).body(product.get());
     }
 
@@ -122,9 +227,16 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product Not Found");
         }
         var productModel = product.get();
+        Long previousBarCode = productModel.getBarCode();
         BeanUtils.copyProperties(productRecordDto, productModel);
 
-        return ResponseEntity.status(HttpStatus.OK).body(productRepository.save(productModel));
+        ProductModel productModelSaved = productChangeService.save(productModel);
+        productCacheService.evict(previousBarCode);
+        productCacheService.evict(productModelSaved.getBarCode());
+        catalogVersionService.bump(Catalog.PRODUCTS);
+        productSearchService.refresh();
+
+        return ResponseEntity.status(HttpStatus.OK).body(productModelSaved);
     }
 
     @Operation(summary = "Deleta um produto a partir de um ID", method = "DELETE")
@@ -140,7 +252,19 @@ public class ProductController {
         if (product.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product Not Found");
         }
-        productRepository.delete(product.get());
+        productChangeService.delete(product.get());
+        productCacheService.evict(product.get().getBarCode());
+        catalogVersionService.bump(Catalog.PRODUCTS);
+        productSearchService.refresh();
         return ResponseEntity.status(HttpStatus.OK).body("Product delete successfully");
     }
+
+    @Operation(summary = "Estatísticas do cache de produtos por código de barras")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estatísticas listadas com sucesso", content = @Content())
+    })
+    @GetMapping("/products/cache/stats")
+    public ResponseEntity<Map<String, Object>> getBarCodeCacheStats(){
+        return ResponseEntity.status(HttpStatus.OK).body(productCacheService.stats());
+    }
 }
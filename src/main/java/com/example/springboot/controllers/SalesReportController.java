@@ -0,0 +1,108 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.dtos.DailySalesReportDto;
+import com.example.springboot.dtos.ProductSalesReportDto;
+import com.example.springboot.dtos.SalesWindowSnapshotDto;
+import com.example.springboot.repositories.DailySalesRepository;
+import com.example.springboot.repositories.DailySalesTotalRepository;
+import com.example.springboot.services.SalesWindowService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// Reads only the daily aggregates maintained at confirmation, never the invoice items
+@RestController
+@Tag(name = "Relatórios de Vendas")
+public class SalesReportController {
+
+    @Autowired
+    DailySalesRepository dailySalesRepository;
+    @Autowired
+    DailySalesTotalRepository dailySalesTotalRepository;
+    @Autowired
+    SalesWindowService salesWindowService;
+
+    @Operation(summary = "Vendas confirmadas por dia",
+            description = "Período em yyyy-MM-dd, datas inclusivas. Informe idProduct para os totais diários de um único produto")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Vendas listadas com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "204", description = "Sem vendas no período", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Período inválido", content = @Content())
+    })
+    @GetMapping("/reports/sales/daily")
+    public ResponseEntity<Object> getDailySales(@RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @RequestParam(value = "idProduct", required = false) UUID idProduct){
+        if(to.isBefore(from)){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("'to' must not be before 'from'");
+        }
+        List<DailySalesReportDto> days = idProduct == null
+                ? dailySalesTotalRepository.findDays(from, to)
+                : dailySalesRepository.findProductDays(idProduct, from, to);
+        if(days.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(days);
+    }
+
+    @Operation(summary = "Produtos mais vendidos no período",
+            description = "Período em yyyy-MM-dd, datas inclusivas. Ordenado pelo valor vendido, limit de 1 a 1000, padrão 100")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Produtos listados com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "204", description = "Sem vendas no período", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Período inválido", content = @Content())
+    })
+    @GetMapping("/reports/sales/products")
+    public ResponseEntity<Object> getProductSales(@RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam(value = "limit", defaultValue = "100") int limit){
+        if(to.isBefore(from)){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("'to' must not be before 'from'");
+        }
+        List<ProductSalesReportDto> products = dailySalesRepository.findTopProducts(from, to,
+                Limit.of(Math.max(1, Math.min(limit, 1000))));
+        if(products.isEmpty()){
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(products);
+    }
+
+    @Operation(summary = "Painel de vendas em tempo real",
+            description = "Vendas confirmadas por minuto e produtos mais vendidos na última hora. Mantido em memória por instância, reinicia vazio")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Painel gerado com sucesso", content = @Content())
+    })
+    @GetMapping("/reports/sales/live")
+    public ResponseEntity<SalesWindowSnapshotDto> getLiveSales(){
+        return ResponseEntity.status(HttpStatus.OK).body(salesWindowService.snapshot());
+    }
+
+    @Operation(summary = "Acompanha o painel de vendas por Server-Sent Events",
+            description = "Envia o painel ao conectar e depois periodicamente, no evento sales")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Conexão aberta", content = @Content()),
+            @ApiResponse(responseCode = "503", description = "Limite de conexões do painel atingido", content = @Content())
+    })
+    @GetMapping(value = "/reports/sales/live/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLiveSales(){
+        return salesWindowService.subscribe()
+                .map(emitter -> ResponseEntity.status(HttpStatus.OK).body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springboot.controllers;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.util.UriTemplate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+// Resolves a controller route to a URI template once, so list endpoints only expand it per row
+// instead of going through linkTo(methodOn(...)) for every element
+final class SelfLinkTemplate {
+
+    private final Class<?> controller;
+
+    private final UriTemplate path;
+
+    private SelfLinkTemplate(Class<?> controller, UriTemplate path) {
+        this.controller = controller;
+        this.path = path;
+    }
+
+    static SelfLinkTemplate of(Class<?> controller, String methodName) {
+        Method method = Arrays.stream(controller.getMethods())
+                .filter(candidate -> candidate.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No handler method " + methodName + " on " + controller.getName()));
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+        if(mapping == null || mapping.path().length == 0){
+            throw new IllegalArgumentException("Handler method " + methodName + " on " + controller.getName() + " has no path");
+        }
+        return new SelfLinkTemplate(controller, new UriTemplate(mapping.path()[0]));
+    }
+
+    // Scheme, host, forwarded headers and context path are resolved once per request, like linkTo does
+    Expander forCurrentRequest() {
+        return new Expander(linkTo(controller).toUri().toString());
+    }
+
+    final class Expander {
+
+        private final String baseUri;
+
+        private Expander(String baseUri) {
+            this.baseUri = baseUri;
+        }
+
+        Link expand(Object... uriVariables) {
+            return Link.of(baseUri + path.expand(uriVariables), IanaLinkRelations.SELF);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.springboot.controllers;
 
 import com.example.springboot.dtos.StockRecordDto;
+import com.example.springboot.dtos.StockResponseDto;
 import com.example.springboot.models.ProductModel;
 import com.example.springboot.models.StockId;
 import com.example.springboot.models.StockModel;
+import com.example.springboot.models.StockMovementModel;
 import com.example.springboot.repositories.ProductRepository;
+import com.example.springboot.repositories.StockMovementRepository;
 import com.example.springboot.repositories.StockRepository;
+import com.example.springboot.services.StockReservationService;
+import com.example.springboot.services.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -14,12 +19,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -30,10 +39,18 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Tag(name = "Estoque")
 public class StockController {
 
+    private static final SelfLinkTemplate SELF_LINK = SelfLinkTemplate.of(StockController.class, "getOneStock");
+
     @Autowired
     private StockRepository stockRepository;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
 
     @Operation(summary = "Realiza o cadastro do estoque do produto"
             , method = "POST"
@@ -75,24 +92,24 @@ public class StockController {
         return ResponseEntity.status(HttpStatus.CREATED).body(stockRepository.save(stockModel));
     }
 
-    @Operation(summary = "Busca todos os estoques cadastrados")
+    @Operation(summary = "Busca todos os estoques cadastrados",
+            description = "Paginado por chave: informe em after o último ID do produto recebido e em limit o tamanho da página (máximo 1000). O link da próxima página vem no cabeçalho Link")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Estoques listados com sucesso", content = @Content()),
             @ApiResponse(responseCode = "204", description = "Sem estoques para listar", content = @Content())
     })
     @GetMapping("/stock")
-    public ResponseEntity<List<StockModel>> getAllStock(){
-        List<StockModel> stockList= stockRepository.findAll();
-        if(!stockList.isEmpty()){
-            for(StockModel stock : stockList){
-                UUID productId = stock.getStockId().getIdProduct();
-
-                stock.add(linkTo(methodOn(StockController.class).getOneStock(productId)).withSelfRel());
-            }
-        }else{
-            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    public ResponseEntity<List<StockResponseDto>> getAllStock(@RequestParam(value = "after", required = false) UUID after,
+                                                              @RequestParam(value = "limit", required = false) Integer limit){
+        List<StockResponseDto> stockList= stockRepository.findResponsePage(
+                after == null ? KeysetPagination.FIRST_UUID : after, KeysetPagination.fetchLimit(limit));
+        SelfLinkTemplate.Expander selfLink = SELF_LINK.forCurrentRequest();
+        for(StockResponseDto stock : stockList){
+            UUID productId = stock.getStockId().getIdProduct();
+
+            stock.add(selfLink.expand(productId));
         }
-        return ResponseEntity.status(HttpStatus.OK).body(stockList);
+        return KeysetPagination.toResponse(stockList, limit, stock -> stock.getStockId().getIdProduct());
     }
 
     @Operation(summary = "Busca um estoque a partir de um UID do produto")
@@ -103,23 +120,55 @@ public class StockController {
     })
     @GetMapping("/stock/{idProduct}")
     public ResponseEntity<Object> getOneStock(@PathVariable(value = "idProduct") UUID idProduct){
-        Optional<ProductModel> product = productRepository.findById(idProduct);
-        if(product.isEmpty()){
+        if(!productRepository.existsById(idProduct)){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product Not Found");
         }
 
-        StockId stockId = new StockId();
-        stockId.setIdProduct(idProduct);
-
-        Optional<StockModel> stock = stockRepository.findById(stockId);
+        Optional<StockResponseDto> stock = stockRepository.findResponseById(idProduct);
         if (stock.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Stock not found.");
         }
 
-        stock.get().add(linkTo(methodOn(StockController.class).getAllStock()).withSelfRel());
+        stock.get().add(linkTo(methodOn(StockController.class).getAllStock(null, null)).withSelfRel().expand());
         return ResponseEntity.status(HttpStatus.OK).body(stock.get());
     }
 
+    @Operation(summary = "Busca a quantidade disponível para venda de um produto",
+            description = "Quantidade em estoque (snapshot compactado somado às movimentações ainda não compactadas) descontadas as reservas feitas no momento da leitura dos itens")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Disponibilidade listada com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Formato UUID inválido", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "Estoque não encontrado", content = @Content())
+    })
+    @GetMapping("/stock/{idProduct}/available")
+    public ResponseEntity<Object> getAvailableStock(@PathVariable(value = "idProduct") UUID idProduct){
+        Optional<BigDecimal> qtyInStock = stockService.findQtyInStock(idProduct);
+        if (qtyInStock.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Stock not found.");
+        }
+        BigDecimal reserved = stockReservationService.getReserved(idProduct);
+
+        Map<String, Object> available = new LinkedHashMap<>();
+        available.put("idProduct", idProduct);
+        available.put("qtyInStock", qtyInStock.get());
+        available.put("reserved", reserved);
+        available.put("available", qtyInStock.get().subtract(reserved));
+        return ResponseEntity.status(HttpStatus.OK).body(available);
+    }
+
+    @Operation(summary = "Lista as últimas movimentações de estoque de um produto",
+            description = "Movimentações gravadas na confirmação das notas, da mais recente para a mais antiga")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Movimentações listadas com sucesso", content = @Content()),
+            @ApiResponse(responseCode = "400", description = "Formato UUID inválido", content = @Content())
+    })
+    @GetMapping("/stock/{idProduct}/movements")
+    public ResponseEntity<List<StockMovementModel>> getStockMovements(@PathVariable(value = "idProduct") UUID idProduct,
+                                                                      @RequestParam(value = "limit", defaultValue = "100") int limit){
+        return ResponseEntity.status(HttpStatus.OK).body(
+                stockMovementRepository.findByIdProductOrderByIdMovementDesc(idProduct, Limit.of(Math.max(1, Math.min(limit, 1000)))));
+    }
+
     @Operation(summary = "Deleta um estoque a partir de um id do produto", method = "DELETE")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Estoque deletado com sucesso", content = @Content()),
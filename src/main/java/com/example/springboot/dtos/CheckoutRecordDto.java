@@ -0,0 +1,25 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(name = "Checkout", description = "Cesta completa do autoatendimento: cabeçalho, pagamento e itens, confirmada em uma única requisição")
+@JsonIgnoreProperties(ignoreUnknown = false)
+public record CheckoutRecordDto(@Schema(description = "CPF do cliente", example = "85834532098")
+                                String customerCpf
+                               ,@NotNull
+                                @Schema(description = "ID do método de pagamento", example = "1")
+                                Long paymentId
+                               ,@NotNull
+                                @Schema(description = "Tipo de operação que será utilizado", example = "2")
+                                Long optId
+                               ,@NotEmpty
+                                @Size(max = 1000, message = "A cesta deve possuir no máximo 1000 itens")
+                                @Schema(description = "Itens da cesta")
+                                List<ItemBatchLineRecordDto> items) {
+}
@@ -0,0 +1,45 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.sql.Timestamp;
+
+@Schema(name = "Cliente (resposta)", description = "Dados do cliente retornados nas consultas")
+public class CustomerResponseDto extends RepresentationModel<CustomerResponseDto> {
+
+    @Schema(description = "CPF do cliente", example = "85834532098")
+    private final String cpf;
+    @Schema(description = "Nome do cliente", example = "Maria da Silva")
+    private final String name;
+    @Schema(description = "Data de nascimento", example = "25-12-1990")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+    private final Timestamp birthDate;
+    @Schema(description = "Data de cadastro", example = "18-10-2026 07:57:21")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private final Timestamp regDate;
+
+    public CustomerResponseDto(String cpf, String name, Timestamp birthDate, Timestamp regDate) {
+        this.cpf = cpf;
+        this.name = name;
+        this.birthDate = birthDate;
+        this.regDate = regDate;
+    }
+
+    public String getCpf() {
+        return cpf;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Timestamp getBirthDate() {
+        return birthDate;
+    }
+
+    public Timestamp getRegDate() {
+        return regDate;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Schema(name = "Vendas do dia", description = "Totais de vendas confirmadas em um dia")
+public record DailySalesReportDto(@Schema(description = "Data da venda", example = "18-10-2026")
+                                  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+                                  LocalDate salesDate
+                                 ,@Schema(description = "Quantidade vendida", example = "130.5")
+                                  BigDecimal qty
+                                 ,@Schema(description = "Valor vendido", example = "1520.90")
+                                  BigDecimal revenue
+                                 ,@Schema(description = "Notas de venda confirmadas", example = "42")
+                                  Long invoiceCount) {
+}
@@ -0,0 +1,25 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+@Schema(name = "Exportação de cabeçalho da nota", description = "Linha NDJSON da exportação de cabeçalhos de nota")
+public record InvoiceHeaderExportDto(@Schema(description = "Número da nota", example = "7")
+                                     Long invoiceNumber
+                                    ,@Schema(description = "Data de cadastro da nota", example = "18-10-2026 07:57:21")
+                                     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+                                     Timestamp regDate
+                                    ,@Schema(description = "S se a nota está confirmada, se não N", example = "S")
+                                     String confirmed
+                                    ,@Schema(description = "Valor total da nota", example = "45.90")
+                                     BigDecimal totalAmount
+                                    ,@Schema(description = "CPF do cliente", example = "85834532098")
+                                     String customerCpf
+                                    ,@Schema(description = "ID do método de pagamento", example = "1")
+                                     Long paymentId
+                                    ,@Schema(description = "ID da operação", example = "1000")
+                                     Long optId) {
+}
@@ -0,0 +1,28 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Schema(name = "Exportação de item da nota", description = "Linha NDJSON da exportação de itens, com os dados da nota do item")
+public record InvoiceItemExportDto(@Schema(description = "Número da nota", example = "7")
+                                   Long invoiceNumber
+                                  ,@Schema(description = "Data de cadastro da nota", example = "18-10-2026 07:57:21")
+                                   @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+                                   Timestamp regDate
+                                  ,@Schema(description = "S se a nota está confirmada, se não N", example = "S")
+                                   String confirmed
+                                  ,@Schema(description = "Sequencial do item", example = "15")
+                                   Long sequential
+                                  ,@Schema(description = "ID (UUID) Produto", example = "5c16df1e-6afe-4c44-98ed-90a783d4deb6")
+                                   UUID idProduct
+                                  ,@Schema(description = "Código de barras do produto", example = "123456")
+                                   Long barCode
+                                  ,@Schema(description = "Valor unitário do produto", example = "4.59")
+                                   BigDecimal productValue
+                                  ,@Schema(description = "Quantidade do item", example = "10")
+                                   BigDecimal qty) {
+}
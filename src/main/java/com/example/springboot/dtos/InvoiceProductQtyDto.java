@@ -0,0 +1,7 @@
+package com.example.springboot.dtos;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record InvoiceProductQtyDto(UUID idProduct, BigDecimal qty) {
+}
@@ -0,0 +1,14 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+@Schema(name = "Linha do lote de itens", description = "Produto e quantidade de uma linha do lote - validados linha a linha")
+@JsonIgnoreProperties(ignoreUnknown = false)
+public record ItemBatchLineRecordDto(@Schema(description = "Código de barras do produto", example = "123456")
+                                     Long barCode
+                                    ,@Schema(description = "Quantidade do produto selecionado", example = "2")
+                                     BigDecimal qty) {
+}
@@ -0,0 +1,16 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "Resultado da linha do lote", description = "Resultado do processamento de uma linha do lote de itens")
+public record ItemBatchLineResultDto(@Schema(description = "Posição da linha no lote (iniciando em 0)", example = "0")
+                                     int line
+                                    ,@Schema(description = "Código de barras informado na linha", example = "123456")
+                                     Long barCode
+                                    ,@Schema(description = "Status HTTP equivalente da linha", example = "201")
+                                     int status
+                                    ,@Schema(description = "Sequencial do item criado, quando aceito", example = "15")
+                                     Long sequential
+                                    ,@Schema(description = "Motivo da rejeição, quando rejeitado", example = "Product Not Found")
+                                     String message) {
+}
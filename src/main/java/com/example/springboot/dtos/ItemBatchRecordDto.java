@@ -0,0 +1,16 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(name = "Lote de itens", description = "Itens a serem adicionados de uma só vez ao cabeçalho da nota")
+@JsonIgnoreProperties(ignoreUnknown = false)
+public record ItemBatchRecordDto(@NotEmpty
+                                 @Size(max = 1000, message = "O lote deve possuir no máximo 1000 itens")
+                                 @Schema(description = "Linhas do lote")
+                                 List<ItemBatchLineRecordDto> items) {
+}
@@ -0,0 +1,25 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Schema(name = "Alteração de produto", description = "Produto criado, alterado ou excluído após a versão informada")
+public record ProductChangeDto(@Schema(description = "ID do produto", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+                               UUID idProduct
+                              ,@Schema(description = "Nome do produto, nulo se excluído", example = "Produto Exemplo")
+                               String name
+                              ,@Schema(description = "Valor do produto, nulo se excluído", example = "8.65")
+                               BigDecimal productValue
+                              ,@Schema(description = "Peso do produto, nulo se excluído", example = "0.2")
+                               BigDecimal weight
+                              ,@Schema(description = "Código de barras, nulo se excluído", example = "123456")
+                               Long barCode
+                              ,@Schema(description = "Y se o produto está ativo, se não N. Nulo se excluído", example = "Y")
+                               String active
+                              ,@Schema(description = "Versão da alteração, usar a última recebida como since na próxima consulta", example = "42")
+                               Long changeVersion
+                              ,@Schema(description = "true se o produto foi excluído", example = "false")
+                               boolean deleted) {
+}
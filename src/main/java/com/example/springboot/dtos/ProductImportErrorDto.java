@@ -0,0 +1,12 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "Linha rejeitada na importação", description = "Linha do arquivo que não foi importada")
+public record ProductImportErrorDto(@Schema(description = "Número da linha no arquivo (iniciando em 1, contando o cabeçalho do CSV)", example = "2")
+                                    long line
+                                   ,@Schema(description = "Código de barras informado na linha, quando legível", example = "123456")
+                                    Long barCode
+                                   ,@Schema(description = "Motivo da rejeição", example = "name: must not be blank")
+                                    String message) {
+}
@@ -0,0 +1,18 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(name = "Resultado da importação de produtos", description = "Totais da importação e linhas rejeitadas")
+public record ProductImportResultDto(@Schema(description = "Linhas de dados lidas, sem contar linhas em branco e o cabeçalho do CSV", example = "200000")
+                                     long lines
+                                    ,@Schema(description = "Produtos criados, cada um com sua linha de estoque", example = "199000")
+                                     long created
+                                    ,@Schema(description = "Produtos existentes atualizados pelo código de barras", example = "995")
+                                     long updated
+                                    ,@Schema(description = "Linhas rejeitadas", example = "5")
+                                     long rejected
+                                    ,@Schema(description = "Linhas rejeitadas, limitadas às primeiras product.import.max-reported-errors")
+                                     List<ProductImportErrorDto> errors) {
+}
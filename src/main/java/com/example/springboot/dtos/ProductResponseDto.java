@@ -0,0 +1,58 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Built straight from a JPQL constructor expression, so reads never attach ProductModel entities
+@Schema(name = "Produto (resposta)", description = "Dados do produto retornados nas consultas")
+public class ProductResponseDto extends RepresentationModel<ProductResponseDto> {
+
+    @Schema(description = "ID (UUID) Produto", example = "5c16df1e-6afe-4c44-98ed-90a783d4deb6")
+    private final UUID idProduct;
+    @Schema(description = "Nome do produto", example = "Arroz 5kg")
+    private final String name;
+    @Schema(description = "Valor do produto", example = "25.90")
+    private final BigDecimal productValue;
+    @Schema(description = "Peso do produto", example = "5")
+    private final BigDecimal weight;
+    @Schema(description = "Código de barras do produto", example = "123456")
+    private final Long barCode;
+    @Schema(description = "Se o produto estiver ativo Y, se não estiver N", example = "Y")
+    private final String active;
+
+    public ProductResponseDto(UUID idProduct, String name, BigDecimal productValue, BigDecimal weight, Long barCode, String active) {
+        this.idProduct = idProduct;
+        this.name = name;
+        this.productValue = productValue;
+        this.weight = weight;
+        this.barCode = barCode;
+        this.active = active;
+    }
+
+    public UUID getIdProduct() {
+        return idProduct;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getProductValue() {
+        return productValue;
+    }
+
+    public BigDecimal getWeight() {
+        return weight;
+    }
+
+    public Long getBarCode() {
+        return barCode;
+    }
+
+    public String getActive() {
+        return active;
+    }
+}
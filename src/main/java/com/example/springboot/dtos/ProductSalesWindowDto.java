@@ -0,0 +1,17 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Schema(name = "Vendas do produto na janela", description = "Totais de vendas confirmadas de um produto na janela em memória")
+public record ProductSalesWindowDto(@Schema(description = "ID (UUID) Produto", example = "5c16df1e-6afe-4c44-98ed-90a783d4deb6")
+                                    UUID idProduct
+                                   ,@Schema(description = "Quantidade vendida", example = "12")
+                                    BigDecimal qty
+                                   ,@Schema(description = "Valor vendido", example = "310.80")
+                                    BigDecimal revenue
+                                   ,@Schema(description = "Notas de venda confirmadas com o produto", example = "9")
+                                    long invoiceCount) {
+}
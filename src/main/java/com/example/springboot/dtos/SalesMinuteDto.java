@@ -0,0 +1,19 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Schema(name = "Vendas do minuto", description = "Totais de vendas confirmadas em um minuto")
+public record SalesMinuteDto(@Schema(description = "Início do minuto", example = "18-10-2026 14:05")
+                             @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm")
+                             LocalDateTime minute
+                            ,@Schema(description = "Quantidade vendida", example = "12.5")
+                             BigDecimal qty
+                            ,@Schema(description = "Valor vendido", example = "310.80")
+                             BigDecimal revenue
+                            ,@Schema(description = "Notas de venda confirmadas", example = "4")
+                             long invoiceCount) {
+}
@@ -0,0 +1,26 @@
+package com.example.springboot.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Schema(name = "Painel de vendas", description = "Vendas confirmadas nos últimos minutos, mantidas em memória pela instância")
+public record SalesWindowSnapshotDto(@Schema(description = "Momento da leitura", example = "18-10-2026 14:05:37")
+                                     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+                                     LocalDateTime generatedAt
+                                    ,@Schema(description = "Tamanho da janela em minutos", example = "60")
+                                     int windowMinutes
+                                    ,@Schema(description = "Quantidade vendida na janela", example = "130.5")
+                                     BigDecimal qty
+                                    ,@Schema(description = "Valor vendido na janela", example = "1520.90")
+                                     BigDecimal revenue
+                                    ,@Schema(description = "Notas de venda confirmadas na janela", example = "42")
+                                     long invoiceCount
+                                    ,@Schema(description = "Totais por minuto, do mais antigo ao atual")
+                                     List<SalesMinuteDto> minutes
+                                    ,@Schema(description = "Produtos mais vendidos na janela, pelo valor vendido")
+                                     List<ProductSalesWindowDto> topProducts) {
+}
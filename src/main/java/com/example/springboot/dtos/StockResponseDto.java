@@ -0,0 +1,37 @@
+package com.example.springboot.dtos;
+
+import com.example.springboot.models.StockId;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.UUID;
+
+@Schema(name = "Estoque (resposta)", description = "Dados do estoque retornados nas consultas")
+public class StockResponseDto extends RepresentationModel<StockResponseDto> {
+
+    @Schema(description = "Chave do estoque (ID do produto)")
+    private final StockId stockId;
+    @Schema(description = "Quantidade em estoque", example = "10")
+    private final Integer qtyInStock;
+    @Schema(description = "Versão do registro, usada no controle de concorrência otimista", example = "3")
+    private final Long version;
+
+    public StockResponseDto(UUID idProduct, Integer qtyInStock, Long version) {
+        this.stockId = new StockId();
+        this.stockId.setIdProduct(idProduct);
+        this.qtyInStock = qtyInStock;
+        this.version = version;
+    }
+
+    public StockId getStockId() {
+        return stockId;
+    }
+
+    public Integer getQtyInStock() {
+        return qtyInStock;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.springboot.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Schema(name = "Falta de estoque", description = "Produto da nota sem estoque suficiente para a confirmação")
+public record StockShortageDto(@Schema(description = "ID (UUID) Produto", example = "5c16df1e-6afe-4c44-98ed-90a783d4deb6")
+                               UUID idProduct
+                              ,@Schema(description = "Quantidade total do produto na nota", example = "12")
+                               BigDecimal requiredQty
+                              ,@Schema(description = "Quantidade em estoque, nula quando o estoque do produto não existe", example = "10")
+                               Integer qtyInStock) {
+}
@@ -0,0 +1,20 @@
+package com.example.springboot.exceptions;
+
+import com.example.springboot.dtos.ItemBatchLineResultDto;
+
+import java.util.List;
+
+public class CheckoutRejectedException extends ConflictException {
+    private static final long serialVersionUID = 1;
+
+    private final transient List<ItemBatchLineResultDto> rejectedLines;
+
+    public CheckoutRejectedException(List<ItemBatchLineResultDto> rejectedLines) {
+        super("Checkout rejected, no item was registered: " + rejectedLines.size() + " line(s) could not be added");
+        this.rejectedLines = rejectedLines;
+    }
+
+    public List<ItemBatchLineResultDto> getRejectedLines() {
+        return rejectedLines;
+    }
+}
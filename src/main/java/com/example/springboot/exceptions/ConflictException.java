@@ -0,0 +1,9 @@
+package com.example.springboot.exceptions;
+
+public class ConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1;
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @ControllerAdvice
@@ -72,6 +73,27 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<Object> handleConflict(ConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, Object>> handleInsufficientStock(InsufficientStockException ex) {
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("error", ex.getMessage());
+        errors.put("shortages", ex.getShortages());
+        return new ResponseEntity<>(errors, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(CheckoutRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleCheckoutRejected(CheckoutRejectedException ex) {
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("error", ex.getMessage());
+        errors.put("lines", ex.getRejectedLines());
+        return new ResponseEntity<>(errors, HttpStatus.CONFLICT);
+    }
+
 
     private String extractFieldName(String causeMessage) {
         if (causeMessage.contains("(") && causeMessage.contains(")")) {
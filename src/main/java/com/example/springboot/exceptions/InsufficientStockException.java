@@ -0,0 +1,25 @@
+package com.example.springboot.exceptions;
+
+import com.example.springboot.dtos.StockShortageDto;
+
+import java.util.List;
+
+public class InsufficientStockException extends ConflictException {
+    private static final long serialVersionUID = 1;
+
+    private final transient List<StockShortageDto> shortages;
+
+    public InsufficientStockException(List<StockShortageDto> shortages) {
+        super("Not enough stock available for the products " + shortages.stream().map(StockShortageDto::idProduct).toList());
+        this.shortages = shortages;
+    }
+
+    public InsufficientStockException(String message) {
+        super(message);
+        this.shortages = List.of();
+    }
+
+    public List<StockShortageDto> getShortages() {
+        return shortages;
+    }
+}
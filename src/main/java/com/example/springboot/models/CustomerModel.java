@@ -2,7 +2,10 @@ package com.example.springboot.models;
 
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.io.Serializable;
@@ -10,6 +13,9 @@ import java.sql.Timestamp;
 import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "TB_CUSTOMER")
 public class CustomerModel extends RepresentationModel<CustomerModel> implements Serializable {
     private static final long serialVersionUID = 1;
@@ -0,0 +1,31 @@
+package com.example.springboot.models;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+public class DailySalesId implements Serializable {
+    private LocalDate salesDate;
+    private UUID idProduct;
+
+    public DailySalesId() {}
+
+    public DailySalesId(LocalDate salesDate, UUID idProduct) {
+        this.salesDate = salesDate;
+        this.idProduct = idProduct;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DailySalesId that = (DailySalesId) o;
+        return Objects.equals(salesDate, that.salesDate) && Objects.equals(idProduct, that.idProduct);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(salesDate, idProduct);
+    }
+}
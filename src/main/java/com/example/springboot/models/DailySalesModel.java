@@ -0,0 +1,54 @@
+package com.example.springboot.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Sales of one product on one day, accumulated when each sale invoice is confirmed
+@Entity
+@Table(name = "TB_DAILY_SALES", indexes = {
+        @Index(columnList = "idProduct, salesDate")
+})
+@IdClass(DailySalesId.class)
+public class DailySalesModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    @Id
+    private LocalDate salesDate;
+
+    @Id
+    private UUID idProduct;
+
+    @Column(nullable = false)
+    private BigDecimal qty;
+
+    @Column(nullable = false)
+    private BigDecimal revenue;
+
+    // Confirmed invoices containing the product that day
+    @Column(nullable = false)
+    private Long invoiceCount;
+
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    public UUID getIdProduct() {
+        return idProduct;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public Long getInvoiceCount() {
+        return invoiceCount;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springboot.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Day totals kept beside the per product rows, whose invoice counts cannot be summed across products
+@Entity
+@Table(name = "TB_DAILY_SALES_TOTAL")
+public class DailySalesTotalModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    @Id
+    private LocalDate salesDate;
+
+    @Column(nullable = false)
+    private BigDecimal qty;
+
+    @Column(nullable = false)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private Long invoiceCount;
+
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public Long getInvoiceCount() {
+        return invoiceCount;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.springboot.models;
 
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.springframework.hateoas.RepresentationModel;
 
@@ -11,23 +12,36 @@ import java.sql.Timestamp;
 import java.time.Instant;
 
 @Entity
-@Table(name = "TB_INVHEADER")
+@NamedEntityGraph(name = "InvoiceHeaderModel.withRelations",
+        attributeNodes = {@NamedAttributeNode("customer"), @NamedAttributeNode("payment"), @NamedAttributeNode("opt")})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+// Each filter of the invoice search leads its own index, followed by the (regDate, invoiceNumber) page key
+@Table(name = "TB_INVHEADER", indexes = {
+        @Index(columnList = "regDate, invoiceNumber"),
+        @Index(columnList = "customer_cpf, regDate, invoiceNumber"),
+        @Index(columnList = "confirmed, regDate, invoiceNumber"),
+        @Index(columnList = "payment_id, regDate, invoiceNumber")
+})
+@SequenceGenerator(name = "invoice_header_seq", sequenceName = "INVOICE_HEADER_SEQ", allocationSize = InvoiceHeaderModel.ID_ALLOCATION_SIZE)
 public class InvoiceHeaderModel extends RepresentationModel<InvoiceHeaderModel> implements Serializable {
     private static final long serialVersionUID = 1;
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence instead of an identity column, so headers are inserted at flush and can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_header_seq")
     private Long invoiceNumber;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_cpf", referencedColumnName = "cpf")
     private CustomerModel customer;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_id", referencedColumnName = "idPmt")
     private PaymentMethodModel payment;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "opt_id", referencedColumnName = "idOpt")
     private OPTModel opt;
 
@@ -1,5 +1,6 @@
 package com.example.springboot.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.springframework.hateoas.RepresentationModel;
 
@@ -7,27 +8,38 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 
 @Entity
+@NamedEntityGraph(name = "ItemModel.withInvoiceAndProduct",
+        attributeNodes = {@NamedAttributeNode(value = "invoiceNumber", subgraph = "invoiceHeader"), @NamedAttributeNode("idProduct")},
+        subgraphs = @NamedSubgraph(name = "invoiceHeader",
+                attributeNodes = {@NamedAttributeNode("customer"), @NamedAttributeNode("payment"), @NamedAttributeNode("opt")}))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "TB_ITEMS",
         uniqueConstraints = @UniqueConstraint(columnNames = {"sequential", "invoiceNumber"}))
 @IdClass(ItemId.class)
+@SequenceGenerator(name = "item_seq", sequenceName = "TB_ITEMS_SEQ", allocationSize = 50)
 public class ItemModel extends RepresentationModel<ItemModel> implements Serializable {
     private static final long serialVersionUID = 1;
 
+    // Same sequence AUTO used to resolve to, now pinned so it cannot change with the id naming strategy
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
     private Long sequential;
 
     @Id
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "invoiceNumber", referencedColumnName = "invoiceNumber")
     private InvoiceHeaderModel invoiceNumber;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "idProduct", referencedColumnName = "idProduct")
     private ProductModel idProduct;
 
     private BigDecimal qty;
 
+    // Product price when the item was priced; invoice total deltas are computed from it so a later price change cannot skew them.
+    // Null on rows written before the column existed, those fall back to the current product price
+    private BigDecimal unitPrice;
+
     public Long getSequential() {
         return sequential;
     }
@@ -56,4 +68,12 @@ public class ItemModel extends RepresentationModel<ItemModel> implements Seriali
     public void setQty(BigDecimal qty) {
         this.qty = qty;
     }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
 }
@@ -1,6 +1,9 @@
 package com.example.springboot.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.io.Serializable;
@@ -8,6 +11,9 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "opt")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "TB_OPT")
 @SequenceGenerator(name = "opt_seq", sequenceName = "OPT_SEQ", initialValue = 1000, allocationSize = 10)
 public class OPTModel extends RepresentationModel<OPTModel> implements Serializable {
@@ -0,0 +1,36 @@
+package com.example.springboot.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+// Single row holding the last version handed out to the product change feed
+@Entity
+@Table(name = "TB_PRODUCT_CHANGE_COUNTER")
+public class ProductChangeCounterModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    public static final Integer ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long version;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
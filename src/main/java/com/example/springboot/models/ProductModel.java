@@ -1,6 +1,9 @@
 package com.example.springboot.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.io.Serializable;
@@ -8,7 +11,12 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
-@Table(name = "TB_PRODUCTS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "TB_PRODUCTS", indexes = {
+        @Index(columnList = "changeVersion")
+})
 public class ProductModel extends RepresentationModel<ProductModel> implements Serializable {
     private static final long serialVersionUID = 1;
 
@@ -24,6 +32,8 @@ public class ProductModel extends RepresentationModel<ProductModel> implements S
 
     private String active;
 
+    // Position of the last create or update in the product change feed, see ProductChangeService
+    private Long changeVersion;
 
     public UUID getIdProduct() {
         return idProduct;
@@ -72,4 +82,12 @@ public class ProductModel extends RepresentationModel<ProductModel> implements S
     public void setActive(String active) {
         this.active = active;
     }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(Long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
 }
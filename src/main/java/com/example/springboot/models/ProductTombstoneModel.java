@@ -0,0 +1,51 @@
+package com.example.springboot.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+// Deleted products stay visible to the change feed through their tombstone
+@Entity
+@Table(name = "TB_PRODUCT_TOMBSTONE", indexes = {
+        @Index(columnList = "changeVersion")
+})
+public class ProductTombstoneModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    @Id
+    private UUID idProduct;
+
+    @Column(nullable = false, updatable = false)
+    private Long changeVersion;
+
+    @Column(updatable = false)
+    private Timestamp deletedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.deletedAt = Timestamp.from(Instant.now());
+    }
+
+    public UUID getIdProduct() {
+        return idProduct;
+    }
+
+    public void setIdProduct(UUID idProduct) {
+        this.idProduct = idProduct;
+    }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(Long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
+
+    public Timestamp getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.springboot.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.io.Serializable;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "stock")
 @Table(name = "TB_STOCK")
 public class StockModel extends RepresentationModel<StockModel> implements Serializable {
     private static final long serialVersionUID = 1;
@@ -16,6 +21,11 @@ public class StockModel extends RepresentationModel<StockModel> implements Seria
 
     private Integer qtyInStock;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     public StockModel() {
         this.qtyInStock = 0;
     }
@@ -28,6 +38,10 @@ public class StockModel extends RepresentationModel<StockModel> implements Seria
         this.qtyInStock = qtyInStock;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public StockId getStockId() {
         return stockId;
     }
@@ -0,0 +1,111 @@
+package com.example.springboot.models;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "TB_STOCK_MOVEMENT", indexes = {
+        @Index(columnList = "compactionId, idProduct"),
+        @Index(columnList = "invoiceNumber")
+})
+@SequenceGenerator(name = "stock_movement_seq", sequenceName = "STOCK_MOVEMENT_SEQ", allocationSize = 50)
+public class StockMovementModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    // Movements already applied to TB_STOCK by the confirmation itself
+    public static final Long APPLIED_ON_CONFIRM = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    private Long idMovement;
+
+    @Column(nullable = false, updatable = false)
+    private UUID idProduct;
+
+    @Column(updatable = false)
+    private Long invoiceNumber;
+
+    @Column(updatable = false)
+    private Long sequential;
+
+    @Column(updatable = false)
+    private String type;
+
+    // Signed quantity: positive for purchases (P), negative for sales (S)
+    @Column(nullable = false, updatable = false)
+    private BigDecimal qty;
+
+    // Null while the movement is still pending compaction into TB_STOCK
+    private Long compactionId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    @Column(updatable = false)
+    private Timestamp regDate;
+
+    @PrePersist
+    protected void onCreate() {
+        this.regDate = Timestamp.from(Instant.now());
+    }
+
+    public Long getIdMovement() {
+        return idMovement;
+    }
+
+    public UUID getIdProduct() {
+        return idProduct;
+    }
+
+    public void setIdProduct(UUID idProduct) {
+        this.idProduct = idProduct;
+    }
+
+    public Long getInvoiceNumber() {
+        return invoiceNumber;
+    }
+
+    public void setInvoiceNumber(Long invoiceNumber) {
+        this.invoiceNumber = invoiceNumber;
+    }
+
+    public Long getSequential() {
+        return sequential;
+    }
+
+    public void setSequential(Long sequential) {
+        this.sequential = sequential;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public void setQty(BigDecimal qty) {
+        this.qty = qty;
+    }
+
+    public Long getCompactionId() {
+        return compactionId;
+    }
+
+    public void setCompactionId(Long compactionId) {
+        this.compactionId = compactionId;
+    }
+
+    public Timestamp getRegDate() {
+        return regDate;
+    }
+}
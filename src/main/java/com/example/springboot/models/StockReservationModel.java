@@ -0,0 +1,72 @@
+package com.example.springboot.models;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Entity
+@Table(name = "TB_STOCK_RESERVATION", indexes = {
+        @Index(columnList = "expiresAt"),
+        @Index(columnList = "idProduct")
+})
+@IdClass(ItemId.class)
+public class StockReservationModel implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    @Id
+    private Long invoiceNumber;
+
+    @Id
+    private Long sequential;
+
+    private UUID idProduct;
+
+    private BigDecimal qty;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private Timestamp expiresAt;
+
+    public Long getInvoiceNumber() {
+        return invoiceNumber;
+    }
+
+    public void setInvoiceNumber(Long invoiceNumber) {
+        this.invoiceNumber = invoiceNumber;
+    }
+
+    public Long getSequential() {
+        return sequential;
+    }
+
+    public void setSequential(Long sequential) {
+        this.sequential = sequential;
+    }
+
+    public UUID getIdProduct() {
+        return idProduct;
+    }
+
+    public void setIdProduct(UUID idProduct) {
+        this.idProduct = idProduct;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public void setQty(BigDecimal qty) {
+        this.qty = qty;
+    }
+
+    public Timestamp getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Timestamp expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -1,10 +1,25 @@
 package com.example.springboot.repositories;
 
+import com.example.springboot.dtos.CustomerResponseDto;
 import com.example.springboot.models.CustomerModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<CustomerModel, String> {
 
+    String CUSTOMER_RESPONSE = "select new com.example.springboot.dtos.CustomerResponseDto(c.cpf, c.name, c.birthDate, c.regDate) " +
+            "from CustomerModel c ";
+
+    @Query(CUSTOMER_RESPONSE + "where c.cpf > :after order by c.cpf")
+    List<CustomerResponseDto> findResponsePage(@Param("after") String after, Limit limit);
+
+    @Query(CUSTOMER_RESPONSE + "where c.cpf = :cpf")
+    Optional<CustomerResponseDto> findResponseById(@Param("cpf") String cpf);
 }
@@ -0,0 +1,40 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.dtos.DailySalesReportDto;
+import com.example.springboot.dtos.ProductSalesReportDto;
+import com.example.springboot.models.DailySalesId;
+import com.example.springboot.models.DailySalesModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySalesModel, DailySalesId> {
+
+    // ON CONFLICT on PostgreSQL, MERGE on H2, so concurrent confirmations of the same product and day add up
+    @Modifying
+    @Query("insert into DailySalesModel d (salesDate, idProduct, qty, revenue, invoiceCount) " +
+            "values (:salesDate, :idProduct, :qty, :revenue, 1L) " +
+            "on conflict(salesDate, idProduct) do update " +
+            "set qty = d.qty + excluded.qty, revenue = d.revenue + excluded.revenue, invoiceCount = d.invoiceCount + excluded.invoiceCount")
+    int addSales(@Param("salesDate") LocalDate salesDate, @Param("idProduct") UUID idProduct,
+                 @Param("qty") BigDecimal qty, @Param("revenue") BigDecimal revenue);
+
+    @Query("select new com.example.springboot.dtos.DailySalesReportDto(d.salesDate, d.qty, d.revenue, d.invoiceCount) " +
+            "from DailySalesModel d where d.idProduct = :idProduct and d.salesDate between :from and :to order by d.salesDate")
+    List<DailySalesReportDto> findProductDays(@Param("idProduct") UUID idProduct, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new com.example.springboot.dtos.ProductSalesReportDto(d.idProduct, p.name, p.barCode, sum(d.qty), sum(d.revenue), sum(d.invoiceCount)) " +
+            "from DailySalesModel d left join ProductModel p on p.idProduct = d.idProduct " +
+            "where d.salesDate between :from and :to " +
+            "group by d.idProduct, p.name, p.barCode order by sum(d.revenue) desc, d.idProduct")
+    List<ProductSalesReportDto> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+}
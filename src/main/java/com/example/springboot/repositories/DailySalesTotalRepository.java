@@ -0,0 +1,28 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.dtos.DailySalesReportDto;
+import com.example.springboot.models.DailySalesTotalModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesTotalRepository extends JpaRepository<DailySalesTotalModel, LocalDate> {
+
+    @Modifying
+    @Query("insert into DailySalesTotalModel t (salesDate, qty, revenue, invoiceCount) " +
+            "values (:salesDate, :qty, :revenue, 1L) " +
+            "on conflict(salesDate) do update " +
+            "set qty = t.qty + excluded.qty, revenue = t.revenue + excluded.revenue, invoiceCount = t.invoiceCount + excluded.invoiceCount")
+    int addSales(@Param("salesDate") LocalDate salesDate, @Param("qty") BigDecimal qty, @Param("revenue") BigDecimal revenue);
+
+    @Query("select new com.example.springboot.dtos.DailySalesReportDto(t.salesDate, t.qty, t.revenue, t.invoiceCount) " +
+            "from DailySalesTotalModel t where t.salesDate between :from and :to order by t.salesDate")
+    List<DailySalesReportDto> findDays(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
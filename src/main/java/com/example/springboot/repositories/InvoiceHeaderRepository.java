@@ -1,10 +1,56 @@
 package com.example.springboot.repositories;
 
+import com.example.springboot.dtos.InvoiceHeaderExportDto;
 import com.example.springboot.models.CustomerModel;
 import com.example.springboot.models.InvoiceHeaderModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface InvoiceHeaderRepository extends JpaRepository<InvoiceHeaderModel, Long> {
+public interface InvoiceHeaderRepository extends JpaRepository<InvoiceHeaderModel, Long>, JpaSpecificationExecutor<InvoiceHeaderModel> {
+
+    @EntityGraph("InvoiceHeaderModel.withRelations")
+    Optional<InvoiceHeaderModel> findById(Long invoiceNumber);
+
+    @EntityGraph("InvoiceHeaderModel.withRelations")
+    List<InvoiceHeaderModel> findByInvoiceNumberGreaterThanOrderByInvoiceNumber(Long invoiceNumber, Limit limit);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select new com.example.springboot.dtos.InvoiceHeaderExportDto(h.invoiceNumber, h.regDate, h.confirmed, h.totalAmount, " +
+            "c.cpf, pm.idPmt, o.idOpt) " +
+            "from InvoiceHeaderModel h left join h.customer c left join h.payment pm left join h.opt o " +
+            "where (:regDateFrom is null or h.regDate >= :regDateFrom) and (:regDateTo is null or h.regDate < :regDateTo) " +
+            "and (:confirmed is null or h.confirmed = :confirmed) " +
+            "order by h.invoiceNumber")
+    Stream<InvoiceHeaderExportDto> streamExport(@Param("regDateFrom") Timestamp regDateFrom, @Param("regDateTo") Timestamp regDateTo,
+                                                @Param("confirmed") String confirmed);
+
+    // Conditional flag switch, so two concurrent confirmations of the same invoice cannot both move stock
+    @Modifying(flushAutomatically = true)
+    @Query("update InvoiceHeaderModel h set h.confirmed = 'S' where h.invoiceNumber = :invoiceNumber and h.confirmed = 'N'")
+    int markConfirmed(@Param("invoiceNumber") Long invoiceNumber);
+
+    // Applied in the database, so concurrent item writes on the same invoice cannot lose each other's delta
+    @Modifying(flushAutomatically = true)
+    @Query("update InvoiceHeaderModel h set h.totalAmount = h.totalAmount + :delta where h.invoiceNumber = :invoiceNumber")
+    int addTotalAmount(@Param("invoiceNumber") Long invoiceNumber, @Param("delta") BigDecimal delta);
+
+    @Query("select h.totalAmount from InvoiceHeaderModel h where h.invoiceNumber = :invoiceNumber")
+    BigDecimal findTotalAmount(@Param("invoiceNumber") Long invoiceNumber);
 }
@@ -0,0 +1,58 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.models.InvoiceHeaderModel;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only the filters actually sent become predicates, so the planner can pick the index led by that column
+public final class InvoiceHeaderSpecifications {
+
+    public static final Sort PAGE_ORDER = Sort.by("regDate", "invoiceNumber");
+
+    private InvoiceHeaderSpecifications() {
+    }
+
+    // regDateTo is exclusive; afterRegDate and afterInvoiceNumber are the key of the last row of the previous page
+    public static Specification<InvoiceHeaderModel> search(Timestamp regDateFrom, Timestamp regDateTo, String customerCpf,
+                                                           String confirmed, Long paymentId,
+                                                           Timestamp afterRegDate, Long afterInvoiceNumber) {
+        return (root, query, builder) -> {
+            if(!Long.class.equals(query.getResultType())){
+                root.fetch("customer", JoinType.LEFT);
+                root.fetch("payment", JoinType.LEFT);
+                root.fetch("opt", JoinType.LEFT);
+            }
+            List<Predicate> predicates = new ArrayList<>();
+            if(regDateFrom != null){
+                predicates.add(builder.greaterThanOrEqualTo(root.get("regDate"), regDateFrom));
+            }
+            if(regDateTo != null){
+                predicates.add(builder.lessThan(root.get("regDate"), regDateTo));
+            }
+            if(customerCpf != null){
+                predicates.add(builder.equal(root.get("customer").get("cpf"), customerCpf));
+            }
+            if(confirmed != null){
+                predicates.add(builder.equal(root.get("confirmed"), confirmed));
+            }
+            if(paymentId != null){
+                predicates.add(builder.equal(root.get("payment").get("idPmt"), paymentId));
+            }
+            if(afterRegDate != null && afterInvoiceNumber != null){
+                // The redundant lower bound gives the index scan a start key, the OR alone is only a filter
+                predicates.add(builder.greaterThanOrEqualTo(root.get("regDate"), afterRegDate));
+                predicates.add(builder.or(
+                        builder.greaterThan(root.get("regDate"), afterRegDate),
+                        builder.and(builder.equal(root.get("regDate"), afterRegDate),
+                                builder.greaterThan(root.get("invoiceNumber"), afterInvoiceNumber))));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
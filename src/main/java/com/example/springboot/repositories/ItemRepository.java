@@ -1,16 +1,57 @@
 package com.example.springboot.repositories;
 
+import com.example.springboot.dtos.InvoiceItemExportDto;
+import com.example.springboot.dtos.InvoiceProductSalesDto;
 import com.example.springboot.models.InvoiceHeaderModel;
 import com.example.springboot.models.ItemId;
 import com.example.springboot.models.ItemModel;
 import com.example.springboot.models.ProductModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ItemRepository extends JpaRepository<ItemModel, ItemId> {
+    // Item views render the header and product too, so they are fetched in the same select
+    @EntityGraph("ItemModel.withInvoiceAndProduct")
     List<ItemModel> findByInvoiceNumber(InvoiceHeaderModel invoiceNumber);
+
+    @EntityGraph("ItemModel.withInvoiceAndProduct")
+    Optional<ItemModel> findById(ItemId itemId);
+
+    // Sequentials come from a single sequence, so they are unique across invoices
+    @EntityGraph("ItemModel.withInvoiceAndProduct")
+    List<ItemModel> findBySequentialGreaterThanOrderBySequential(Long sequential, Limit limit);
+
+    // Constructor projection read through a forward-only cursor: rows are never attached to the persistence context
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select new com.example.springboot.dtos.InvoiceItemExportDto(h.invoiceNumber, h.regDate, h.confirmed, " +
+            "i.sequential, p.idProduct, p.barCode, coalesce(i.unitPrice, p.productValue), i.qty) " +
+            "from ItemModel i join i.invoiceNumber h join i.idProduct p " +
+            "where (:regDateFrom is null or h.regDate >= :regDateFrom) and (:regDateTo is null or h.regDate < :regDateTo) " +
+            "and (:confirmed is null or h.confirmed = :confirmed) " +
+            "order by h.invoiceNumber, i.sequential")
+    Stream<InvoiceItemExportDto> streamExport(@Param("regDateFrom") Timestamp regDateFrom, @Param("regDateTo") Timestamp regDateTo,
+                                              @Param("confirmed") String confirmed);
+
+    @Query("select coalesce(sum(coalesce(i.unitPrice, p.productValue) * i.qty), 0) from ItemModel i join i.idProduct p " +
+            "where i.invoiceNumber.invoiceNumber = :invoiceNumber")
+    BigDecimal sumTotalAmount(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Query("select new com.example.springboot.dtos.InvoiceProductSalesDto(p.idProduct, sum(i.qty), sum(i.qty * coalesce(i.unitPrice, p.productValue))) " +
+            "from ItemModel i join i.idProduct p where i.invoiceNumber.invoiceNumber = :invoiceNumber group by p.idProduct")
+    List<InvoiceProductSalesDto> sumSalesByProduct(@Param("invoiceNumber") Long invoiceNumber);
 }
@@ -0,0 +1,20 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.models.ProductChangeCounterModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductChangeCounterRepository extends JpaRepository<ProductChangeCounterModel, Integer> {
+
+    // The row lock taken here is held until commit, so versions become visible in the order they were handed out
+    @Modifying
+    @Query("update ProductChangeCounterModel c set c.version = c.version + :count where c.id = :id")
+    int increment(@Param("id") Integer id, @Param("count") long count);
+
+    @Query("select c.version from ProductChangeCounterModel c where c.id = :id")
+    Long findVersion(@Param("id") Integer id);
+}
@@ -1,13 +1,52 @@
 package com.example.springboot.repositories;
 
+import com.example.springboot.dtos.ProductChangeDto;
+import com.example.springboot.dtos.ProductResponseDto;
 import com.example.springboot.models.ProductModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProductRepository extends JpaRepository<ProductModel, UUID> {
+    // Cached query: any write to TB_PRODUCTS invalidates the cached results through the update timestamps region
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "product-by-barcode")})
     Optional<ProductModel> findByBarCode(Long barCode);
+
+    List<ProductModel> findByBarCodeIn(Collection<? extends Long> barCodes);
+
+    String PRODUCT_RESPONSE = "select new com.example.springboot.dtos.ProductResponseDto(p.idProduct, p.name, p.productValue, p.weight, p.barCode, p.active) " +
+            "from ProductModel p ";
+
+    @Query(PRODUCT_RESPONSE + "where p.idProduct > :after order by p.idProduct")
+    List<ProductResponseDto> findResponsePage(@Param("after") UUID after, Limit limit);
+
+    // Fallback of the in-memory name index: case insensitive, but accents must be typed as stored
+    @Query(PRODUCT_RESPONSE + "where lower(p.name) like :pattern escape '\\' order by p.name")
+    List<ProductResponseDto> searchByName(@Param("pattern") String pattern, Limit limit);
+
+    @Query(PRODUCT_RESPONSE + "where p.idProduct = :idProduct")
+    Optional<ProductResponseDto> findResponseById(@Param("idProduct") UUID idProduct);
+
+    @Query("select new com.example.springboot.dtos.ProductChangeDto(p.idProduct, p.name, p.productValue, p.weight, p.barCode, p.active, p.changeVersion, false) " +
+            "from ProductModel p where p.changeVersion > :since order by p.changeVersion")
+    List<ProductChangeDto> findChangesSince(@Param("since") Long since, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("update ProductModel p set p.changeVersion = :version where p.changeVersion is null")
+    int assignMissingChangeVersion(@Param("version") Long version);
 }
@@ -0,0 +1,15 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.models.ProductTombstoneModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstoneModel, UUID> {
+
+    List<ProductTombstoneModel> findByChangeVersionGreaterThanOrderByChangeVersion(Long since, Limit limit);
+}
@@ -0,0 +1,33 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.models.StockMovementModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovementModel, Long> {
+
+    List<StockMovementModel> findByIdProductOrderByIdMovementDesc(UUID idProduct, Limit limit);
+
+    @Query("select coalesce(sum(m.qty), 0) from StockMovementModel m where m.idProduct = :idProduct and m.compactionId is null")
+    BigDecimal sumPendingQty(@Param("idProduct") UUID idProduct);
+
+    // Claims the pending movements first, so rows committed while compacting are left for the next run
+    @Modifying
+    @Query("update StockMovementModel m set m.compactionId = :compactionId where m.compactionId is null")
+    int claimPending(@Param("compactionId") Long compactionId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update versioned StockModel s set s.qtyInStock = s.qtyInStock + " +
+            "(select cast(sum(m.qty) as Integer) from StockMovementModel m where m.compactionId = :compactionId and m.idProduct = s.stockId.idProduct) " +
+            "where s.stockId.idProduct in (select m.idProduct from StockMovementModel m where m.compactionId = :compactionId)")
+    int applyToStock(@Param("compactionId") Long compactionId);
+}
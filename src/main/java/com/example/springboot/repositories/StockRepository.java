@@ -1,14 +1,87 @@
 package com.example.springboot.repositories;
 
-import com.example.springboot.models.ProductModel;
+import com.example.springboot.dtos.InvoiceLineDto;
+import com.example.springboot.dtos.InvoiceProductQtyDto;
+import com.example.springboot.dtos.StockResponseDto;
+import com.example.springboot.dtos.StockShortageDto;
 import com.example.springboot.models.StockId;
 import com.example.springboot.models.StockModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface StockRepository extends JpaRepository<StockModel, StockId> {
+
+    String STOCK_RESPONSE = "select new com.example.springboot.dtos.StockResponseDto(s.stockId.idProduct, s.qtyInStock, s.version) " +
+            "from StockModel s ";
+
+    // Always read from the database and written back to the second-level cache, for paths that must not act on a
+    // quantity cached before another instance moved it
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "REFRESH"))
+    Optional<StockModel> findByStockId(StockId stockId);
+
+    @Query(STOCK_RESPONSE + "where s.stockId.idProduct > :after order by s.stockId.idProduct")
+    List<StockResponseDto> findResponsePage(@Param("after") UUID after, Limit limit);
+
+    @Query(STOCK_RESPONSE + "where s.stockId.idProduct = :idProduct")
+    Optional<StockResponseDto> findResponseById(@Param("idProduct") UUID idProduct);
+
+    @Query("select count(distinct i.idProduct.idProduct) from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber")
+    long countInvoiceProducts(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Query("select new com.example.springboot.dtos.InvoiceProductQtyDto(i.idProduct.idProduct, sum(i.qty)) " +
+            "from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber " +
+            "group by i.idProduct.idProduct order by i.idProduct.idProduct")
+    List<InvoiceProductQtyDto> findInvoiceProductQty(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Query("select new com.example.springboot.dtos.StockShortageDto(i.idProduct.idProduct, sum(i.qty), s.qtyInStock) " +
+            "from ItemModel i left join StockModel s on s.stockId.idProduct = i.idProduct.idProduct " +
+            "where i.invoiceNumber.invoiceNumber = :invoiceNumber " +
+            "group by i.idProduct.idProduct, s.qtyInStock " +
+            "having s.qtyInStock is null or sum(i.qty) > s.qtyInStock")
+    List<StockShortageDto> findInvoiceShortages(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Query("select new com.example.springboot.dtos.InvoiceLineDto(i.sequential, i.idProduct.idProduct, i.qty) " +
+            "from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber")
+    List<InvoiceLineDto> findInvoiceLines(@Param("invoiceNumber") Long invoiceNumber);
+
+    // Availability in ledger mode is the compacted snapshot plus the movements still pending compaction
+    @Query("select new com.example.springboot.dtos.StockShortageDto(i.idProduct.idProduct, sum(i.qty), s.qtyInStock) " +
+            "from ItemModel i left join StockModel s on s.stockId.idProduct = i.idProduct.idProduct " +
+            "where i.invoiceNumber.invoiceNumber = :invoiceNumber " +
+            "group by i.idProduct.idProduct, s.qtyInStock " +
+            "having s.qtyInStock is null or sum(i.qty) > s.qtyInStock + " +
+            "coalesce((select sum(m.qty) from StockMovementModel m where m.idProduct = i.idProduct.idProduct and m.compactionId is null), 0)")
+    List<StockShortageDto> findInvoiceLedgerShortages(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Query("select new com.example.springboot.dtos.StockShortageDto(i.idProduct.idProduct, sum(i.qty), s.qtyInStock) " +
+            "from ItemModel i left join StockModel s on s.stockId.idProduct = i.idProduct.idProduct " +
+            "where i.invoiceNumber.invoiceNumber = :invoiceNumber and s.qtyInStock is null " +
+            "group by i.idProduct.idProduct, s.qtyInStock")
+    List<StockShortageDto> findInvoiceMissingStock(@Param("invoiceNumber") Long invoiceNumber);
+
+    // Quantities are aggregated per product; the sufficiency check is part of the update itself
+    @Modifying(flushAutomatically = true)
+    @Query("update versioned StockModel s set s.qtyInStock = s.qtyInStock - " +
+            "(select cast(sum(i.qty) as Integer) from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber and i.idProduct.idProduct = s.stockId.idProduct) " +
+            "where s.stockId.idProduct in (select i.idProduct.idProduct from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber) " +
+            "and s.qtyInStock >= (select sum(i.qty) from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber and i.idProduct.idProduct = s.stockId.idProduct)")
+    int decrementInvoiceStock(@Param("invoiceNumber") Long invoiceNumber);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update versioned StockModel s set s.qtyInStock = s.qtyInStock + " +
+            "(select cast(sum(i.qty) as Integer) from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber and i.idProduct.idProduct = s.stockId.idProduct) " +
+            "where s.stockId.idProduct in (select i.idProduct.idProduct from ItemModel i where i.invoiceNumber.invoiceNumber = :invoiceNumber)")
+    int incrementInvoiceStock(@Param("invoiceNumber") Long invoiceNumber);
 }
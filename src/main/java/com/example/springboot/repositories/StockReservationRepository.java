@@ -0,0 +1,35 @@
+package com.example.springboot.repositories;
+
+import com.example.springboot.dtos.InvoiceProductQtyDto;
+import com.example.springboot.models.ItemId;
+import com.example.springboot.models.StockReservationModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservationModel, ItemId> {
+
+    List<StockReservationModel> findByInvoiceNumber(Long invoiceNumber);
+
+    List<StockReservationModel> findByExpiresAtBefore(Timestamp expiresAt);
+
+    @Query("select new com.example.springboot.dtos.InvoiceProductQtyDto(r.idProduct, sum(r.qty)) " +
+            "from StockReservationModel r group by r.idProduct")
+    List<InvoiceProductQtyDto> sumReservedByProduct();
+
+    // Any scan keeps the whole basket alive, only abandoned invoices expire
+    @Modifying
+    @Query("update StockReservationModel r set r.expiresAt = :expiresAt where r.invoiceNumber = :invoiceNumber")
+    int extendInvoiceReservations(@Param("invoiceNumber") Long invoiceNumber, @Param("expiresAt") Timestamp expiresAt);
+
+    // Returns 0 when a concurrent release already removed the row, so the reserved quantity is only given back once
+    @Modifying
+    @Query("delete from StockReservationModel r where r.invoiceNumber = :invoiceNumber and r.sequential = :sequential")
+    int deleteReservation(@Param("invoiceNumber") Long invoiceNumber, @Param("sequential") Long sequential);
+}
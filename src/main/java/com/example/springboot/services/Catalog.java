@@ -0,0 +1,7 @@
+package com.example.springboot.services;
+
+public enum Catalog {
+    PRODUCTS,
+    OPTS,
+    PAYMENT_METHODS
+}
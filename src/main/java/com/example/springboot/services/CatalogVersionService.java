@@ -0,0 +1,54 @@
+package com.example.springboot.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory version per catalog, the ETag of the catalog list endpoints is derived from it so a matching
+// If-None-Match is answered without reading the database. Writes through another instance are not seen here
+@Service
+public class CatalogVersionService {
+
+    private final Map<Catalog, AtomicLong> versions = new EnumMap<>(Catalog.class);
+
+    private final CacheControl cacheControl;
+
+    public CatalogVersionService(@Value("${catalog.cache-control.max-age-seconds:0}") long maxAgeSeconds) {
+        // Seeded from the clock (in microseconds) so a restart never hands out a version an earlier run already used
+        long seed = System.currentTimeMillis() * 1000;
+        for(Catalog catalog : Catalog.values()){
+            versions.put(catalog, new AtomicLong(seed));
+        }
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).mustRevalidate();
+    }
+
+    public String eTag(Catalog catalog) {
+        return "\"" + catalog.name().toLowerCase() + "-" + versions.get(catalog).get() + "\"";
+    }
+
+    public CacheControl cacheControl() {
+        return cacheControl;
+    }
+
+    // Bumped only after the write is committed, otherwise a concurrent read could tag the old rows with the new version
+    public void bump(Catalog catalog) {
+        AtomicLong version = versions.get(catalog);
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            version.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                version.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.springboot.services;
+
+import com.example.springboot.models.CustomerModel;
+import com.example.springboot.repositories.CustomerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// A short-lived cache of the CPFs recently found, so a returning customer costs no query at the lane.
+// "No" answers always go to the database: a customer registered through another instance would make a cached "no" wrong.
+// A cached "yes" for a customer deleted meanwhile is caught by the invoice foreign key
+@Service
+public class CustomerLookupService {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final Cache<String, Boolean> knownCustomers;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+
+    public CustomerLookupService(@Value("${customer.lookup.cache-ttl-seconds:30}") long cacheTtlSeconds,
+                                 @Value("${customer.lookup.cache-maximum-size:100000}") long cacheMaximumSize) {
+        this.knownCustomers = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    public boolean exists(String cpf) {
+        if(knownCustomers.getIfPresent(cpf) != null){
+            cacheHits.increment();
+            return true;
+        }
+        databaseLookups.increment();
+        boolean exists = customerRepository.existsById(cpf);
+        answered(cpf, exists);
+        return exists;
+    }
+
+    // On a hit only a reference is handed out, the invoice needs the key; when rendered it is read from the customer entity cache
+    public Optional<CustomerModel> find(String cpf) {
+        if(knownCustomers.getIfPresent(cpf) != null){
+            cacheHits.increment();
+            return Optional.of(customerRepository.getReferenceById(cpf));
+        }
+        databaseLookups.increment();
+        Optional<CustomerModel> customer = customerRepository.findById(cpf);
+        answered(cpf, customer.isPresent());
+        return customer;
+    }
+
+    private void answered(String cpf, boolean exists) {
+        if(exists){
+            knownCustomers.put(cpf, Boolean.TRUE);
+        }else{
+            notFound.increment();
+        }
+    }
+
+    public void registered(String cpf) {
+        afterCommit(() -> knownCustomers.put(cpf, Boolean.TRUE));
+    }
+
+    public void removed(String cpf) {
+        afterCommit(() -> knownCustomers.invalidate(cpf));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cacheHits", cacheHits.sum());
+        result.put("cacheSize", knownCustomers.estimatedSize());
+        result.put("databaseLookups", databaseLookups.sum());
+        result.put("notFound", notFound.sum());
+        return result;
+    }
+
+    private void afterCommit(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
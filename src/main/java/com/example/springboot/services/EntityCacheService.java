@@ -0,0 +1,55 @@
+package com.example.springboot.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Hibernate second-level cache regions, configured in application.conf
+@Service
+public class EntityCacheService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public Map<String, Object> stats(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        // Off by default, collecting them costs on every session; the counters would only read zero
+        if(!statistics.isStatisticsEnabled()){
+            result.put("message", "Hibernate statistics are disabled, set entity-cache.statistics.enabled=true to collect them");
+            result.put("regions", Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted().toList());
+            return result;
+        }
+        result.put("hitCount", statistics.getSecondLevelCacheHitCount());
+        result.put("missCount", statistics.getSecondLevelCacheMissCount());
+        result.put("putCount", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        result.put("queryCachePutCount", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        Arrays.stream(statistics.getSecondLevelCacheRegionNames()).sorted().forEach(name -> {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if(region == null){
+                return;
+            }
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("hitCount", region.getHitCount());
+            regionStats.put("missCount", region.getMissCount());
+            regionStats.put("putCount", region.getPutCount());
+            long lookups = region.getHitCount() + region.getMissCount();
+            regionStats.put("hitRate", lookups == 0 ? 0.0 : (double) region.getHitCount() / lookups);
+            regions.put(name, regionStats);
+        });
+        result.put("regions", regions);
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.springboot.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final Cache<String, IdempotentRequest> responses;
+
+    private final long waitTimeoutMs;
+
+    public IdempotencyService(@Value("${idempotency.maximum-size:100000}") long maximumSize,
+                              @Value("${idempotency.expire-after-write-minutes:60}") long expireAfterWriteMinutes,
+                              @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .build();
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    private record IdempotentRequest(Object fingerprint, CompletableFuture<ResponseEntity<Object>> response) {
+    }
+
+    // The first request with a key runs the action, duplicates wait for it and get the same response back.
+    // Failed attempts (exceptions, 5xx or rolled back transactions) are forgotten so the client retry runs again
+    public ResponseEntity<Object> execute(String idempotencyKey, String scope, Object fingerprint,
+                                          Supplier<ResponseEntity<Object>> action) {
+        if(idempotencyKey == null || idempotencyKey.isBlank()){
+            return action.get();
+        }
+        String key = scope + ":" + idempotencyKey;
+        var request = new IdempotentRequest(fingerprint, new CompletableFuture<>());
+
+        IdempotentRequest existing = responses.asMap().putIfAbsent(key, request);
+        if(existing != null){
+            return replay(existing, idempotencyKey, scope, fingerprint, action);
+        }
+
+        ResponseEntity<Object> response;
+        try{
+            response = action.get();
+        }catch(RuntimeException e){
+            discard(key, request);
+            throw e;
+        }
+        if(response.getStatusCode().is5xxServerError()){
+            discard(key, request);
+        }else if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if(status == STATUS_COMMITTED){
+                        request.response().complete(response);
+                    }else{
+                        discard(key, request);
+                    }
+                }
+            });
+        }else{
+            request.response().complete(response);
+        }
+        return response;
+    }
+
+    private ResponseEntity<Object> replay(IdempotentRequest existing, String idempotencyKey, String scope, Object fingerprint,
+                                          Supplier<ResponseEntity<Object>> action) {
+        if(!Objects.equals(existing.fingerprint(), fingerprint)){
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Idempotency-Key already used for a different request");
+        }
+        ResponseEntity<Object> response;
+        try{
+            response = existing.response().get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        }catch(ExecutionException e){
+            return execute(idempotencyKey, scope, fingerprint, action);
+        }catch(TimeoutException e){
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("A request with this Idempotency-Key is still being processed, try again");
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("A request with this Idempotency-Key is still being processed, try again");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    private void discard(String key, IdempotentRequest request) {
+        responses.asMap().remove(key, request);
+        request.response().completeExceptionally(new IllegalStateException("Request was not completed"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.springboot.services;
+
+import com.example.springboot.repositories.InvoiceHeaderRepository;
+import com.example.springboot.repositories.ItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Service
+public class InvoiceExportService {
+
+    private final ItemRepository itemRepository;
+
+    private final InvoiceHeaderRepository invoiceHeaderRepository;
+
+    private final ObjectWriter objectWriter;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public InvoiceExportService(ItemRepository itemRepository, InvoiceHeaderRepository invoiceHeaderRepository,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.invoiceHeaderRepository = invoiceHeaderRepository;
+        this.objectWriter = objectMapper.writer();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // regDateTo is inclusive: the whole day is exported
+    public StreamingResponseBody exportItems(LocalDate regDateFrom, LocalDate regDateTo, String confirmed) {
+        return out -> writeNdjson(out, () -> itemRepository.streamExport(startOf(regDateFrom), startOfNextDay(regDateTo), confirmed));
+    }
+
+    public StreamingResponseBody exportHeaders(LocalDate regDateFrom, LocalDate regDateTo, String confirmed) {
+        return out -> writeNdjson(out, () -> invoiceHeaderRepository.streamExport(startOf(regDateFrom), startOfNextDay(regDateTo), confirmed));
+    }
+
+    // The cursor only stays open inside a transaction (PostgreSQL ignores the fetch size in autocommit mode)
+    private <T> void writeNdjson(OutputStream out, Supplier<Stream<T>> rows) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try(Stream<T> stream = rows.get()){
+                Iterator<T> iterator = stream.iterator();
+                while(iterator.hasNext()){
+                    out.write(objectWriter.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+                out.flush();
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Timestamp startOf(LocalDate date) {
+        return date == null ? null : Timestamp.valueOf(date.atStartOfDay());
+    }
+
+    private static Timestamp startOfNextDay(LocalDate date) {
+        return date == null ? null : Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.springboot.services;
 
+import com.example.springboot.dtos.ItemBatchLineRecordDto;
+import com.example.springboot.dtos.ItemBatchLineResultDto;
+import com.example.springboot.exceptions.CheckoutRejectedException;
+import com.example.springboot.exceptions.ConflictException;
 import com.example.springboot.models.InvoiceHeaderModel;
 import com.example.springboot.models.ItemModel;
 import com.example.springboot.repositories.InvoiceHeaderRepository;
 import com.example.springboot.repositories.ItemRepository;
+import com.example.springboot.repositories.ProductRepository;
+import com.example.springboot.services.ProductCacheService.ProductSnapshot;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 public class InvoiceService {
@@ -20,23 +36,173 @@ public class InvoiceService {
     @Autowired
     private ItemRepository itemRepository;
 
-    public void updateTotalAmount(Long invoiceNumber){
-        List<ItemModel> itemList = itemRepository.findByInvoiceNumber(invoiceHeaderRepository.findById(invoiceNumber).get());
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCacheService productCacheService;
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
 
-        for(ItemModel item : itemList){
-            BigDecimal itemValueTotal = item.getProduct().getproductValue().multiply(item.getQty());
-            totalAmount = itemValueTotal.add(totalAmount);
+    @Autowired
+    private SalesAggregateService salesAggregateService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    public BigDecimal itemAmount(ItemModel item){
+        BigDecimal unitPrice = item.getUnitPrice() != null ? item.getUnitPrice() : item.getProduct().getproductValue();
+        return unitPrice.multiply(item.getQty());
+    }
+
+    // Applies a signed delta to the running total instead of re-summing every item of the invoice.
+    // The header is then reloaded rather than set, a dirty total would be written back over concurrent deltas
+    @Transactional
+    public void applyTotalAmountDelta(InvoiceHeaderModel invoiceHeader, BigDecimal delta){
+        if(delta.signum() == 0){
+            return;
+        }
+        invoiceHeaderRepository.addTotalAmount(invoiceHeader.getInvoiceNumber(), delta);
+        if(entityManager.contains(invoiceHeader)){
+            entityManager.refresh(invoiceHeader);
+        }else{
+            invoiceHeader.setTotalAmount(invoiceHeaderRepository.findTotalAmount(invoiceHeader.getInvoiceNumber()));
         }
+    }
+
+    // Full recomputation, kept as a verification path for the incremental total
+    @Transactional
+    public Optional<InvoiceHeaderModel> recalculateTotalAmount(Long invoiceNumber){
         Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
         if(invoiceHeader.isEmpty()) {
-            return;
+            return invoiceHeader;
         }
         var invoiceModel = invoiceHeader.get();
 
-        invoiceModel.setTotalAmount(totalAmount);
-        invoiceHeaderRepository.save(invoiceModel);
+        invoiceModel.setTotalAmount(itemRepository.sumTotalAmount(invoiceNumber));
+        return Optional.of(invoiceHeaderRepository.save(invoiceModel));
+    }
+
+    // Rejected lines are reported individually and do not prevent the remaining lines from being added
+    @Transactional
+    public List<ItemBatchLineResultDto> addItems(InvoiceHeaderModel invoiceHeader, List<ItemBatchLineRecordDto> lines){
+        Map<Long, ProductSnapshot> products = productCacheService.findAllByBarCode(
+                lines.stream().map(ItemBatchLineRecordDto::barCode).toList());
+
+        List<ItemBatchLineResultDto> results = new ArrayList<>(lines.size());
+        List<Integer> acceptedLines = new ArrayList<>(lines.size());
+        List<ItemModel> items = new ArrayList<>(lines.size());
+
+        for(int i = 0; i < lines.size(); i++){
+            ItemBatchLineRecordDto line = lines.get(i);
+            String rejection = null;
+            HttpStatus status = HttpStatus.BAD_REQUEST;
+            ProductSnapshot product = line.barCode() == null ? null : products.get(line.barCode());
+
+            if(line.barCode() == null){
+                rejection = "barCode is required";
+            }else if(line.qty() == null){
+                rejection = "qty is required";
+            }else if(product == null){
+                rejection = "Product Not Found";
+                status = HttpStatus.NOT_FOUND;
+            }else if(product.active().equals("N")){
+                rejection = "Product is not active";
+                status = HttpStatus.CONFLICT;
+            }
+
+            if(rejection != null){
+                results.add(new ItemBatchLineResultDto(i, line.barCode(), status.value(), null, rejection));
+                continue;
+            }
+            var itemModel = new ItemModel();
+            itemModel.setProduct(productRepository.getReferenceById(product.idProduct()));
+            itemModel.setUnitPrice(product.productValue());
+            itemModel.setInvoiceHeader(invoiceHeader);
+            itemModel.setQty(line.qty());
+
+            items.add(itemModel);
+            acceptedLines.add(i);
+            results.add(null);
+        }
+
+        List<ItemModel> savedItems = itemRepository.saveAll(items);
+        List<ItemModel> unreservedItems = new ArrayList<>();
+
+        BigDecimal delta = BigDecimal.ZERO;
+        for(int i = 0; i < savedItems.size(); i++){
+            ItemModel savedItem = savedItems.get(i);
+            int line = acceptedLines.get(i);
+            if(!stockReservationService.tryReserve(savedItem)){
+                unreservedItems.add(savedItem);
+                results.set(line, new ItemBatchLineResultDto(line, lines.get(line).barCode(),
+                        HttpStatus.CONFLICT.value(), null, "Not enough stock available"));
+                continue;
+            }
+            delta = delta.add(itemAmount(savedItem));
+            results.set(line, new ItemBatchLineResultDto(line, lines.get(line).barCode(),
+                    HttpStatus.CREATED.value(), savedItem.getSequential(), null));
+        }
+        itemRepository.deleteAllInBatch(unreservedItems);
+        applyTotalAmountDelta(invoiceHeader, delta);
+
+        return results;
+    }
+
+    // The transaction is opened inside the stock concurrency wrapper so locks are held, or retries restart, around the commit
+    public InvoiceHeaderModel confirmInvoice(InvoiceHeaderModel invoiceHeader){
+        return stockService.runWithStockConcurrency(invoiceHeader.getInvoiceNumber(),
+                () -> retryOnceOnDuplicateAggregate(() -> transactionTemplate.execute(status -> confirmInTransaction(invoiceHeader))));
+    }
+
+    // Header, items and confirmation in one transaction: any rejected line or stock shortage rolls the whole basket back.
+    // The header is built again on every attempt since an OPTIMISTIC retry starts from a rolled back transaction
+    public InvoiceHeaderModel checkout(Supplier<InvoiceHeaderModel> newInvoiceHeader, List<ItemBatchLineRecordDto> lines,
+                                       Collection<UUID> idProducts){
+        return stockService.runWithStockConcurrency(idProducts,
+                () -> retryOnceOnDuplicateAggregate(() -> transactionTemplate.execute(status -> {
+                    InvoiceHeaderModel invoiceHeader = invoiceHeaderRepository.save(newInvoiceHeader.get());
+                    List<ItemBatchLineResultDto> results = addItems(invoiceHeader, lines);
+                    List<ItemBatchLineResultDto> rejected = results.stream()
+                            .filter(result -> result.status() != HttpStatus.CREATED.value())
+                            .toList();
+                    if(!rejected.isEmpty()){
+                        throw new CheckoutRejectedException(rejected);
+                    }
+                    if(invoiceHeader.getTotalAmount().compareTo(BigDecimal.ZERO) <= 0){
+                        throw new ConflictException("Total Amount can't be ZERO");
+                    }
+                    return confirmInTransaction(invoiceHeader);
+                })));
+    }
+
+    // The first sale of a product on a day inserts its aggregate rows. The upsert is not atomic on every database (MERGE on H2),
+    // two such inserts can race and the loser fails on the primary key once the winner commits. Its transaction is already
+    // marked for rollback, so the whole confirmation runs again once; by then the rows exist and are only updated
+    private InvoiceHeaderModel retryOnceOnDuplicateAggregate(Supplier<InvoiceHeaderModel> confirmation){
+        try{
+            return confirmation.get();
+        }catch(DataIntegrityViolationException e){
+            return confirmation.get();
+        }
+    }
+
+    private InvoiceHeaderModel confirmInTransaction(InvoiceHeaderModel invoiceHeader){
+        if(invoiceHeaderRepository.markConfirmed(invoiceHeader.getInvoiceNumber()) == 0){
+            throw new ConflictException("Invoice Header already confirmed");
+        }
+        stockService.updateStock(invoiceHeader);
+        stockReservationService.releaseInvoice(invoiceHeader.getInvoiceNumber());
+        salesAggregateService.addConfirmedInvoice(invoiceHeader);
 
+        invoiceHeader.setConfirmed("S");
+        return invoiceHeaderRepository.save(invoiceHeader);
     }
 }
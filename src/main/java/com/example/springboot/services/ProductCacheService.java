@@ -0,0 +1,127 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.ProductChangeDto;
+import com.example.springboot.models.ProductModel;
+import com.example.springboot.repositories.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Barcode lookups of the item and checkout paths. Entries are immutable snapshots, never entities, so they can be
+// shared between request threads; changes made through any instance are dropped by following the product change feed
+@Service
+public class ProductCacheService {
+
+    private static final int CHANGES_PAGE_SIZE = 1000;
+
+    public record ProductSnapshot(UUID idProduct, Long barCode, BigDecimal productValue, String active) {
+
+        static ProductSnapshot of(ProductModel product) {
+            return new ProductSnapshot(product.getIdProduct(), product.getBarCode(), product.getproductValue(), product.getActive());
+        }
+    }
+
+    private final ProductRepository productRepository;
+
+    private final ProductChangeService productChangeService;
+
+    private final Cache<Long, ProductSnapshot> productsByBarCode;
+
+    private Long appliedVersion;
+
+    // The expiry is only a backstop, the change feed normally drops an entry within one refresh interval
+    @Autowired
+    public ProductCacheService(ProductRepository productRepository, ProductChangeService productChangeService,
+                               @Value("${product.barcode-cache.maximum-size:50000}") long maximumSize,
+                               @Value("${product.barcode-cache.expire-after-write-minutes:60}") long expireAfterWriteMinutes) {
+        this.productRepository = productRepository;
+        this.productChangeService = productChangeService;
+        this.productsByBarCode = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .recordStats()
+                .build();
+    }
+
+    // Unknown barcodes are not cached, so a product registered later is found on the next scan
+    public Optional<ProductSnapshot> findByBarCode(Long barCode){
+        if(barCode == null){
+            return Optional.empty();
+        }
+        return Optional.ofNullable(productsByBarCode.get(barCode,
+                key -> productRepository.findByBarCode(key).map(ProductSnapshot::of).orElse(null)));
+    }
+
+    // Cache misses of the whole set are resolved with a single IN query
+    public Map<Long, ProductSnapshot> findAllByBarCode(Collection<Long> barCodes){
+        return productsByBarCode.getAll(barCodes.stream().filter(Objects::nonNull).collect(Collectors.toSet()),
+                missing -> productRepository.findByBarCodeIn(missing).stream()
+                        .collect(Collectors.toMap(ProductModel::getBarCode, ProductSnapshot::of)));
+    }
+
+    // Nothing is cached before startup, so only changes from here on matter
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        appliedVersion = productChangeService.currentVersion();
+    }
+
+    // Versions are taken under the counter row lock, so the feed is in commit order and a change is never skipped
+    @Scheduled(fixedDelayString = "${product.barcode-cache.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        if(appliedVersion == null){
+            return;
+        }
+        List<ProductChangeDto> changes;
+        do{
+            changes = productChangeService.findChangesSince(appliedVersion, Limit.of(CHANGES_PAGE_SIZE));
+            if(changes.isEmpty()){
+                return;
+            }
+            // A barcode change or a delete is only known by product id, so entries are matched on the id they hold
+            Set<UUID> changed = new HashSet<>();
+            for(ProductChangeDto change : changes){
+                changed.add(change.idProduct());
+                appliedVersion = change.changeVersion();
+            }
+            productsByBarCode.asMap().values().removeIf(product -> changed.contains(product.idProduct()));
+        }while(changes.size() == CHANGES_PAGE_SIZE);
+    }
+
+    public void evict(Long barCode){
+        if(barCode != null){
+            productsByBarCode.invalidate(barCode);
+        }
+    }
+
+    public Map<String, Object> stats(){
+        CacheStats stats = productsByBarCode.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", productsByBarCode.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+}
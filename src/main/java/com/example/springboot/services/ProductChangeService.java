@@ -0,0 +1,116 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.ProductChangeDto;
+import com.example.springboot.models.ProductChangeCounterModel;
+import com.example.springboot.models.ProductModel;
+import com.example.springboot.models.ProductTombstoneModel;
+import com.example.springboot.repositories.ProductChangeCounterRepository;
+import com.example.springboot.repositories.ProductRepository;
+import com.example.springboot.repositories.ProductTombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Every product write takes the next version from TB_PRODUCT_CHANGE_COUNTER, deletes leave a tombstone,
+// so terminals can ask for everything after the last version they applied
+@Service
+public class ProductChangeService {
+
+    // Products that existed before the change feed are reported once, at the first version
+    private static final Long INITIAL_VERSION = 1L;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Autowired
+    private ProductChangeCounterRepository productChangeCounterRepository;
+
+    // Runs before the listeners that read the change feed, see ProductSearchService
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initialize() {
+        if(!productChangeCounterRepository.existsById(ProductChangeCounterModel.ID)){
+            var counter = new ProductChangeCounterModel();
+            counter.setId(ProductChangeCounterModel.ID);
+            counter.setVersion(INITIAL_VERSION);
+            try{
+                productChangeCounterRepository.saveAndFlush(counter);
+            }catch(DataIntegrityViolationException e){
+                // Another instance created it first
+            }
+        }
+        productRepository.assignMissingChangeVersion(INITIAL_VERSION);
+    }
+
+    @Transactional
+    public ProductModel save(ProductModel product) {
+        product.setChangeVersion(nextVersion());
+        return productRepository.save(product);
+    }
+
+    // One block of versions is reserved for the whole list, assigned in list order
+    @Transactional
+    public List<ProductModel> saveAll(List<ProductModel> products) {
+        if(products.isEmpty()){
+            return products;
+        }
+        long version = nextVersions(products.size()) - products.size();
+        for(ProductModel product : products){
+            product.setChangeVersion(++version);
+        }
+        return productRepository.saveAll(products);
+    }
+
+    @Transactional
+    public void delete(ProductModel product) {
+        productRepository.delete(product);
+        productRepository.flush();
+
+        var tombstone = new ProductTombstoneModel();
+        tombstone.setIdProduct(product.getIdProduct());
+        tombstone.setChangeVersion(nextVersion());
+        productTombstoneRepository.save(tombstone);
+    }
+
+    // Reads one page from each table and merges them, at most limit rows in version order
+    @Transactional(readOnly = true)
+    public List<ProductChangeDto> findChangesSince(Long since, Limit limit) {
+        List<ProductChangeDto> changes = new ArrayList<>(productRepository.findChangesSince(since, limit));
+        for(ProductTombstoneModel tombstone : productTombstoneRepository.findByChangeVersionGreaterThanOrderByChangeVersion(since, limit)){
+            changes.add(new ProductChangeDto(tombstone.getIdProduct(), null, null, null, null, null,
+                    tombstone.getChangeVersion(), true));
+        }
+        changes.sort(Comparator.comparing(ProductChangeDto::changeVersion));
+        return changes.size() > limit.max() ? changes.subList(0, limit.max()) : changes;
+    }
+
+    @Transactional(readOnly = true)
+    public Long currentVersion() {
+        return productChangeCounterRepository.findVersion(ProductChangeCounterModel.ID);
+    }
+
+    private Long nextVersion() {
+        return nextVersions(1);
+    }
+
+    // Returns the last version of the block
+    private Long nextVersions(int count) {
+        if(productChangeCounterRepository.increment(ProductChangeCounterModel.ID, count) == 0){
+            throw new IllegalStateException("Product change counter is not initialized");
+        }
+        return productChangeCounterRepository.findVersion(ProductChangeCounterModel.ID);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.springboot.services;
+
+public enum ProductImportFormat {
+    CSV,
+    NDJSON
+}
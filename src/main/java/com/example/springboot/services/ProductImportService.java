@@ -0,0 +1,309 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.ProductImportErrorDto;
+import com.example.springboot.dtos.ProductImportResultDto;
+import com.example.springboot.dtos.ProductRecordDto;
+import com.example.springboot.models.ProductModel;
+import com.example.springboot.repositories.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Loads a whole catalog from one request body: lines are parsed one at a time and written in chunks,
+// each chunk a transaction with its products and their stock rows, so memory depends on the chunk size only
+@Service
+public class ProductImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "productValue", "barCode", "weight", "active");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private Validator validator;
+
+    // With open-in-view the request keeps one persistence context, cleared after every chunk
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectReader productReader;
+
+    private final TransactionTemplate transaction;
+
+    private final int chunkSize;
+
+    private final int maxReportedErrors;
+
+    public ProductImportService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                @Value("${product.import.chunk-size:500}") int chunkSize,
+                                @Value("${product.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.productReader = objectMapper.readerFor(ProductRecordDto.class);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    private record ImportLine(long line, ProductRecordDto product) {
+    }
+
+    private record ChunkResult(int created, int updated, Set<Long> barCodes) {
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        ProductRecordDto parse(String text) throws JsonProcessingException;
+    }
+
+    private final class Report {
+        private long lines;
+        private long created;
+        private long updated;
+        private long rejected;
+        private final List<ProductImportErrorDto> errors = new ArrayList<>();
+
+        private void reject(long line, Long barCode, String message) {
+            rejected++;
+            if(errors.size() < maxReportedErrors){
+                errors.add(new ProductImportErrorDto(line, barCode, message));
+            }
+        }
+
+        private ProductImportResultDto toDto() {
+            return new ProductImportResultDto(lines, created, updated, rejected, errors);
+        }
+    }
+
+    // Chunks already written stay committed if the stream breaks halfway; importing the same file again is safe
+    public ProductImportResultDto importProducts(InputStream body, Charset charset, ProductImportFormat format) throws IOException {
+        Report report = new Report();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset))){
+            long lineNumber = 0;
+            LineParser parser = productReader::readValue;
+            if(format == ProductImportFormat.CSV){
+                String header = reader.readLine();
+                if(header == null){
+                    return report.toDto();
+                }
+                lineNumber++;
+                parser = csvParser(header);
+            }
+
+            List<ImportLine> chunk = new ArrayList<>(chunkSize);
+            String text;
+            while((text = reader.readLine()) != null){
+                lineNumber++;
+                if(text.isBlank()){
+                    continue;
+                }
+                report.lines++;
+                ProductRecordDto product;
+                try{
+                    product = parser.parse(text);
+                }catch(JsonProcessingException e){
+                    report.reject(lineNumber, null, e.getOriginalMessage());
+                    continue;
+                }catch(IllegalArgumentException e){
+                    report.reject(lineNumber, null, e.getMessage());
+                    continue;
+                }
+                if(product == null){
+                    report.reject(lineNumber, null, "Empty record");
+                    continue;
+                }
+                Set<ConstraintViolation<ProductRecordDto>> violations = validator.validate(product);
+                if(!violations.isEmpty()){
+                    report.reject(lineNumber, product.barCode(), violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining("; ")));
+                    continue;
+                }
+                chunk.add(new ImportLine(lineNumber, product));
+                if(chunk.size() >= chunkSize){
+                    write(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if(!chunk.isEmpty()){
+                write(chunk, report);
+            }
+        }finally{
+            if(report.created + report.updated > 0){
+                productSearchService.refresh();
+            }
+        }
+        return report.toDto();
+    }
+
+    private void write(List<ImportLine> chunk, Report report) {
+        try{
+            ChunkResult result = transaction.execute(status -> upsert(chunk));
+            report.created += result.created();
+            report.updated += result.updated();
+            result.barCodes().forEach(productCacheService::evict);
+        }catch(DataAccessException e){
+            if(chunk.size() == 1){
+                ImportLine line = chunk.get(0);
+                String cause = Objects.toString(e.getMostSpecificCause().getMessage(), "").lines().findFirst().orElse("");
+                report.reject(line.line(), line.product().barCode(), "Could not be saved: " + cause);
+                return;
+            }
+            // One bad line rolls the whole chunk back: the lines are written again one by one to find it
+            for(ImportLine line : chunk){
+                write(List.of(line), report);
+            }
+        }finally{
+            entityManager.clear();
+        }
+    }
+
+    // Upsert by barCode: a barCode repeated in the file updates the same product, lines without one always create
+    private ChunkResult upsert(List<ImportLine> chunk) {
+        Map<Long, ProductModel> byBarCode = new HashMap<>(productRepository.findByBarCodeIn(chunk.stream()
+                        .map(line -> line.product().barCode()).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(ProductModel::getBarCode, Function.identity())));
+
+        List<ProductModel> products = new ArrayList<>(chunk.size());
+        List<ProductModel> created = new ArrayList<>();
+        Set<Long> barCodes = new HashSet<>();
+        int updated = 0;
+        for(ImportLine line : chunk){
+            Long barCode = line.product().barCode();
+            ProductModel product = barCode == null ? null : byBarCode.get(barCode);
+            if(product == null){
+                product = new ProductModel();
+                created.add(product);
+                if(barCode != null){
+                    byBarCode.put(barCode, product);
+                }
+            }else{
+                updated++;
+            }
+            if(barCode == null || barCodes.add(barCode)){
+                products.add(product);
+            }
+            BeanUtils.copyProperties(line.product(), product);
+        }
+
+        productChangeService.saveAll(products);
+        List<UUID> idProducts = new ArrayList<>(created.size());
+        for(ProductModel product : created){
+            idProducts.add(product.getIdProduct());
+        }
+        stockService.createStocks(idProducts);
+        catalogVersionService.bump(Catalog.PRODUCTS);
+        return new ChunkResult(created.size(), updated, barCodes);
+    }
+
+    private static LineParser csvParser(String header) {
+        List<String> columns = splitCsv(header.replace("\uFEFF", "")).stream().map(String::trim).toList();
+        for(String column : columns){
+            if(!CSV_COLUMNS.contains(column)){
+                throw new IllegalArgumentException("Unknown CSV column '" + column + "', expected " + String.join(",", CSV_COLUMNS));
+            }
+        }
+        if(new HashSet<>(columns).size() != columns.size()){
+            throw new IllegalArgumentException("Repeated CSV column in header");
+        }
+        return text -> {
+            List<String> fields = splitCsv(text);
+            if(fields.size() != columns.size()){
+                throw new IllegalArgumentException("Expected " + columns.size() + " columns, found " + fields.size());
+            }
+            Map<String, String> values = new HashMap<>();
+            for(int i = 0; i < columns.size(); i++){
+                String value = fields.get(i).trim();
+                values.put(columns.get(i), value.isEmpty() ? null : value);
+            }
+            return new ProductRecordDto(values.get("name"), parseNumber(values, "productValue", BigDecimal::new),
+                    parseNumber(values, "barCode", Long::valueOf), parseNumber(values, "weight", BigDecimal::new),
+                    values.get("active"));
+        };
+    }
+
+    private static <T> T parseNumber(Map<String, String> values, String column, Function<String, T> parser) {
+        String value = values.get(column);
+        if(value == null){
+            return null;
+        }
+        try{
+            return parser.apply(value);
+        }catch(NumberFormatException e){
+            throw new IllegalArgumentException("Invalid number in column '" + column + "': " + value);
+        }
+    }
+
+    // Comma separated, fields may be quoted with "" as an escaped quote; a record cannot span lines
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c != '"'){
+                    field.append(c);
+                }else if(i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    field.append('"');
+                    i++;
+                }else{
+                    quoted = false;
+                }
+            }else if(c == '"'){
+                quoted = true;
+            }else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            }else{
+                field.append(c);
+            }
+        }
+        if(quoted){
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.ProductChangeDto;
+import com.example.springboot.dtos.ProductResponseDto;
+import com.example.springboot.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+// Prefix index over the words of the product names, accent and case folded. It follows the product change feed,
+// so writes made through any instance are picked up; until the first load completes searches go to the database
+@Service
+public class ProductSearchService {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int CHANGES_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Value("${product.search.index-enabled:true}")
+    private boolean indexEnabled;
+
+    // "<word>\0<idProduct>" -> idProduct, a range scan from a prefix yields every product with a word starting with it
+    private final ConcurrentSkipListMap<String, UUID> words = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<UUID, IndexedProduct> products = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    private record IndexedProduct(ProductChangeDto product, String[] words) {
+    }
+
+    private long appliedVersion;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if(indexEnabled){
+            refresh();
+            loaded = true;
+        }
+    }
+
+    // Applies every change after the last one seen; also called right after local writes so they are searchable at once
+    @Scheduled(fixedDelayString = "${product.search.refresh-interval-ms:1000}")
+    public synchronized void refresh() {
+        if(!indexEnabled){
+            return;
+        }
+        List<ProductChangeDto> changes;
+        do{
+            changes = productChangeService.findChangesSince(appliedVersion, Limit.of(CHANGES_PAGE_SIZE));
+            for(ProductChangeDto change : changes){
+                apply(change);
+                appliedVersion = change.changeVersion();
+            }
+        }while(changes.size() == CHANGES_PAGE_SIZE);
+    }
+
+    public List<ProductResponseDto> search(String query, int limit) {
+        String[] queryWords = words(query);
+        if(queryWords.length == 0){
+            return List.of();
+        }
+        if(!loaded){
+            return productRepository.searchByName(likePrefix(query.trim().toLowerCase(Locale.ROOT)), Limit.of(limit));
+        }
+        // The ranges of all query words are walked in turns: once the shortest one is exhausted every product
+        // matching all the words has been seen, so the cost is bounded by the most selective word
+        List<Iterator<UUID>> ranges = new ArrayList<>(queryWords.length);
+        for(String queryWord : queryWords){
+            ranges.add(words.subMap(queryWord, true, queryWord + Character.MAX_VALUE, false).values().iterator());
+        }
+        Map<UUID, ProductChangeDto> found = new LinkedHashMap<>();
+        while(found.size() < limit && ranges.stream().allMatch(Iterator::hasNext)){
+            for(Iterator<UUID> range : ranges){
+                IndexedProduct indexed = products.get(range.next());
+                if(indexed != null && matchesAll(indexed.words(), queryWords)){
+                    found.putIfAbsent(indexed.product().idProduct(), indexed.product());
+                }
+            }
+        }
+        List<ProductResponseDto> result = new ArrayList<>(Math.min(found.size(), limit));
+        for(ProductChangeDto product : found.values()){
+            if(result.size() == limit){
+                break;
+            }
+            result.add(new ProductResponseDto(product.idProduct(), product.name(), product.productValue(),
+                    product.weight(), product.barCode(), product.active()));
+        }
+        return result;
+    }
+
+    private void apply(ProductChangeDto change) {
+        IndexedProduct previous = change.deleted()
+                ? products.remove(change.idProduct())
+                : products.put(change.idProduct(), new IndexedProduct(change, words(change.name())));
+        if(previous != null){
+            for(String word : previous.words()){
+                words.remove(key(word, change.idProduct()));
+            }
+        }
+        if(!change.deleted()){
+            for(String word : words(change.name())){
+                words.put(key(word, change.idProduct()), change.idProduct());
+            }
+        }
+    }
+
+    private static boolean matchesAll(String[] nameWords, String[] queryWords) {
+        for(String queryWord : queryWords){
+            if(Arrays.stream(nameWords).noneMatch(word -> word.startsWith(queryWord))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(String word, UUID idProduct) {
+        return word + KEY_SEPARATOR + idProduct;
+    }
+
+    static String[] words(String text) {
+        if(text == null){
+            return new String[0];
+        }
+        String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        return Arrays.stream(WORD_SEPARATORS.split(folded)).filter(word -> !word.isEmpty()).distinct().toArray(String[]::new);
+    }
+
+    private static String likePrefix(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springboot.services;
+
+import com.example.springboot.models.OPTModel;
+import com.example.springboot.models.PaymentMethodModel;
+import com.example.springboot.repositories.OPTRepository;
+import com.example.springboot.repositories.PaymentMethodRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// OPTs and payment methods are a handful of rows that almost never change, so the invoice paths resolve them
+// from an immutable snapshot that is rebuilt and swapped as a whole on every write
+@Service
+public class ReferenceDataRegistry {
+
+    @Autowired
+    private OPTRepository optRepository;
+
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+
+    private record Snapshot(Map<Long, OPTModel> opts, Map<Long, PaymentMethodModel> paymentMethods) {
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    // Also picks up writes made through other instances
+    @Scheduled(fixedDelayString = "${reference-data.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        snapshot = new Snapshot(
+                optRepository.findAll().stream()
+                        .collect(Collectors.toUnmodifiableMap(OPTModel::getIdOpt, Function.identity())),
+                paymentMethodRepository.findAll().stream()
+                        .collect(Collectors.toUnmodifiableMap(PaymentMethodModel::getIdPmt, Function.identity())));
+    }
+
+    // Callers get their own copy, the entities are mutable and carry HATEOAS links
+    public Optional<OPTModel> findOpt(Long idOpt) {
+        OPTModel opt = snapshot.opts().get(idOpt);
+        if(opt == null){
+            return missing(optRepository.findById(idOpt));
+        }
+        var copy = new OPTModel();
+        copy.setIdOpt(opt.getIdOpt());
+        copy.setType(opt.getType());
+        copy.setUpdateStock(opt.getUpdateStock());
+        copy.setActive(opt.getActive());
+        return Optional.of(copy);
+    }
+
+    public Optional<PaymentMethodModel> findPaymentMethod(Long idPmt) {
+        PaymentMethodModel paymentMethod = snapshot.paymentMethods().get(idPmt);
+        if(paymentMethod == null){
+            return missing(paymentMethodRepository.findById(idPmt));
+        }
+        var copy = new PaymentMethodModel();
+        copy.setIdPmt(paymentMethod.getIdPmt());
+        copy.setType(paymentMethod.getType());
+        copy.setCardBrand(paymentMethod.getCardBrand());
+        return Optional.of(copy);
+    }
+
+    // A row the snapshot does not know yet was inserted elsewhere: answer from the database and reload
+    private <T> Optional<T> missing(Optional<T> fromDatabase) {
+        if(fromDatabase.isPresent()){
+            refresh();
+        }
+        return fromDatabase;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.InvoiceProductSalesDto;
+import com.example.springboot.models.InvoiceHeaderModel;
+import com.example.springboot.repositories.DailySalesRepository;
+import com.example.springboot.repositories.DailySalesTotalRepository;
+import com.example.springboot.repositories.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Keeps TB_DAILY_SALES and TB_DAILY_SALES_TOTAL up to date so sales reports never read TB_ITEMS
+@Service
+public class SalesAggregateService {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailySalesTotalRepository dailySalesTotalRepository;
+
+    @Autowired
+    private SalesWindowService salesWindowService;
+
+    // Runs inside the confirmation transaction: a failed confirmation leaves no trace in the aggregates
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addConfirmedInvoice(InvoiceHeaderModel invoiceHeader) {
+        if(!invoiceHeader.getOpt().getType().equals("S")){
+            return;
+        }
+        List<InvoiceProductSalesDto> sales = itemRepository.sumSalesByProduct(invoiceHeader.getInvoiceNumber());
+        if(sales.isEmpty()){
+            return;
+        }
+        LocalDate salesDate = LocalDate.now();
+        BigDecimal qty = BigDecimal.ZERO;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for(InvoiceProductSalesDto product : sales){
+            dailySalesRepository.addSales(salesDate, product.idProduct(), product.qty(), product.revenue());
+            qty = qty.add(product.qty());
+            revenue = revenue.add(product.revenue());
+        }
+        dailySalesTotalRepository.addSales(salesDate, qty, revenue);
+        salesWindowService.record(sales);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.InvoiceProductSalesDto;
+import com.example.springboot.dtos.ProductSalesWindowDto;
+import com.example.springboot.dtos.SalesMinuteDto;
+import com.example.springboot.dtos.SalesWindowSnapshotDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Live sales of this instance for the last minutes: a ring of per-minute buckets that is only ever
+// appended to with atomic adds, so recording a confirmation never waits on readers or other writers
+@Service
+public class SalesWindowService {
+
+    // Quantities and values are accumulated as whole thousandths
+    private static final int SCALE = 3;
+
+    private final int windowMinutes;
+
+    private final int topK;
+
+    private final int maxProductsPerMinute;
+
+    private final long sseTimeoutMs;
+
+    private final int maxSubscribers;
+
+    private final AtomicReferenceArray<MinuteBucket> ring;
+
+    private final CopyOnWriteArrayList<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    public SalesWindowService(@Value("${sales.window.minutes:60}") int windowMinutes,
+                              @Value("${sales.window.top-k:10}") int topK,
+                              @Value("${sales.window.max-products-per-minute:5000}") int maxProductsPerMinute,
+                              @Value("${sales.window.sse-timeout-ms:1800000}") long sseTimeoutMs,
+                              @Value("${sales.window.max-subscribers:100}") int maxSubscribers) {
+        this.windowMinutes = windowMinutes;
+        this.topK = topK;
+        this.maxProductsPerMinute = maxProductsPerMinute;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.ring = new AtomicReferenceArray<>(windowMinutes);
+    }
+
+    private static final class Counters {
+        private final LongAdder qty = new LongAdder();
+        private final LongAdder revenue = new LongAdder();
+        private final LongAdder invoices = new LongAdder();
+
+        private void add(long qty, long revenue) {
+            this.qty.add(qty);
+            this.revenue.add(revenue);
+            this.invoices.increment();
+        }
+    }
+
+    private static final class MinuteBucket {
+        private final long minute;
+        private final Counters total = new Counters();
+        // Bounded per minute; sales of products beyond the cap still count in the totals
+        private final ConcurrentHashMap<UUID, Counters> products = new ConcurrentHashMap<>();
+
+        private MinuteBucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    // Called inside the confirmation transaction, the sales are only counted once it commits
+    public void record(List<InvoiceProductSalesDto> sales) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            add(sales);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(sales);
+            }
+        });
+    }
+
+    private void add(List<InvoiceProductSalesDto> sales) {
+        MinuteBucket bucket = bucketFor(currentMinute());
+        long qty = 0;
+        long revenue = 0;
+        for(InvoiceProductSalesDto product : sales){
+            long productQty = toUnits(product.qty());
+            long productRevenue = toUnits(product.revenue());
+            qty += productQty;
+            revenue += productRevenue;
+            Counters counters = bucket.products.get(product.idProduct());
+            if(counters == null && bucket.products.size() < maxProductsPerMinute){
+                counters = bucket.products.computeIfAbsent(product.idProduct(), id -> new Counters());
+            }
+            if(counters != null){
+                counters.add(productQty, productRevenue);
+            }
+        }
+        bucket.total.add(qty, revenue);
+    }
+
+    // The slot of an expired minute is swapped for a fresh bucket; a writer losing the race uses the winner's
+    private MinuteBucket bucketFor(long minute) {
+        int slot = (int) Math.floorMod(minute, (long) windowMinutes);
+        while(true){
+            MinuteBucket current = ring.get(slot);
+            if(current != null && current.minute >= minute){
+                return current;
+            }
+            MinuteBucket fresh = new MinuteBucket(minute);
+            if(ring.compareAndSet(slot, current, fresh)){
+                return fresh;
+            }
+        }
+    }
+
+    public SalesWindowSnapshotDto snapshot() {
+        long now = currentMinute();
+        List<SalesMinuteDto> minutes = new ArrayList<>(windowMinutes);
+        Map<UUID, long[]> products = new HashMap<>();
+        long qty = 0;
+        long revenue = 0;
+        long invoices = 0;
+        for(long minute = now - windowMinutes + 1; minute <= now; minute++){
+            MinuteBucket bucket = ring.get((int) Math.floorMod(minute, (long) windowMinutes));
+            if(bucket == null || bucket.minute != minute){
+                minutes.add(new SalesMinuteDto(toDateTime(minute), fromUnits(0), fromUnits(0), 0));
+                continue;
+            }
+            long minuteQty = bucket.total.qty.sum();
+            long minuteRevenue = bucket.total.revenue.sum();
+            long minuteInvoices = bucket.total.invoices.sum();
+            minutes.add(new SalesMinuteDto(toDateTime(minute), fromUnits(minuteQty), fromUnits(minuteRevenue), minuteInvoices));
+            qty += minuteQty;
+            revenue += minuteRevenue;
+            invoices += minuteInvoices;
+            bucket.products.forEach((idProduct, counters) -> {
+                long[] sum = products.computeIfAbsent(idProduct, id -> new long[3]);
+                sum[0] += counters.qty.sum();
+                sum[1] += counters.revenue.sum();
+                sum[2] += counters.invoices.sum();
+            });
+        }
+        return new SalesWindowSnapshotDto(LocalDateTime.now(), windowMinutes, fromUnits(qty), fromUnits(revenue), invoices,
+                minutes, topProducts(products));
+    }
+
+    // Min-heap of size K by revenue, so ranking costs O(n log K) over the products sold in the window
+    private List<ProductSalesWindowDto> topProducts(Map<UUID, long[]> products) {
+        Comparator<Map.Entry<UUID, long[]>> byRevenue = Comparator.comparingLong(entry -> entry.getValue()[1]);
+        PriorityQueue<Map.Entry<UUID, long[]>> heap = new PriorityQueue<>(topK + 1, byRevenue);
+        for(Map.Entry<UUID, long[]> entry : products.entrySet()){
+            heap.offer(entry);
+            if(heap.size() > topK){
+                heap.poll();
+            }
+        }
+        List<ProductSalesWindowDto> top = new ArrayList<>(heap.size());
+        while(!heap.isEmpty()){
+            Map.Entry<UUID, long[]> entry = heap.poll();
+            top.add(0, new ProductSalesWindowDto(entry.getKey(), fromUnits(entry.getValue()[0]),
+                    fromUnits(entry.getValue()[1]), entry.getValue()[2]));
+        }
+        return top;
+    }
+
+    public Optional<SseEmitter> subscribe() {
+        if(subscribers.size() >= maxSubscribers){
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        send(emitter, snapshot());
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedDelayString = "${sales.window.push-interval-ms:5000}")
+    public void push() {
+        if(subscribers.isEmpty()){
+            return;
+        }
+        SalesWindowSnapshotDto snapshot = snapshot();
+        for(SseEmitter emitter : subscribers){
+            send(emitter, snapshot);
+        }
+    }
+
+    private void send(SseEmitter emitter, SalesWindowSnapshotDto snapshot) {
+        try{
+            emitter.send(SseEmitter.event().name("sales").data(snapshot));
+        }catch(IOException | IllegalStateException e){
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+
+    private static LocalDateTime toDateTime(long minute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(minute * 60), ZoneId.systemDefault());
+    }
+
+    private static long toUnits(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+}
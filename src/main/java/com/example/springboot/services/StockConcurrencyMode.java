@@ -0,0 +1,13 @@
+package com.example.springboot.services;
+
+public enum StockConcurrencyMode {
+    // Single conditional UPDATE per invoice, the database row lock serialises concurrent checkouts
+    ATOMIC,
+    // Read-modify-write guarded by StockModel.version, the whole confirmation is retried on conflict
+    OPTIMISTIC,
+    // Read-modify-write guarded by in-process locks striped by product (single instance deployments only)
+    STRIPED,
+    // Confirmation only appends to the movement journal, TB_STOCK is brought up to date by the compaction job.
+    // The availability check is guarded by the same striped locks (single instance deployments only)
+    LEDGER
+}
@@ -0,0 +1,60 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.InvoiceLineDto;
+import com.example.springboot.models.StockMovementModel;
+import com.example.springboot.repositories.StockMovementRepository;
+import com.example.springboot.repositories.StockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+public class StockLedgerService {
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    // One journal row per invoice line; rows already applied to TB_STOCK are written as compacted
+    @Transactional
+    public void recordInvoiceMovements(Long invoiceNumber, String type, boolean appliedToStock) {
+        List<InvoiceLineDto> lines = stockRepository.findInvoiceLines(invoiceNumber);
+        List<StockMovementModel> movements = new ArrayList<>(lines.size());
+
+        for(InvoiceLineDto line : lines){
+            var movement = new StockMovementModel();
+            movement.setIdProduct(line.idProduct());
+            movement.setInvoiceNumber(invoiceNumber);
+            movement.setSequential(line.sequential());
+            movement.setType(type);
+            movement.setQty(type.equals("P") ? line.qty() : line.qty().negate());
+            movement.setCompactionId(appliedToStock ? StockMovementModel.APPLIED_ON_CONFIRM : null);
+            movements.add(movement);
+        }
+        stockMovementRepository.saveAll(movements);
+    }
+
+    public BigDecimal getPendingQty(UUID idProduct) {
+        return stockMovementRepository.sumPendingQty(idProduct);
+    }
+
+    @Scheduled(fixedDelayString = "${stock.ledger.compaction-interval-ms:10000}")
+    @Transactional
+    public int compact() {
+        // Random ids keep compactors running on different instances from applying each other's claims
+        long compactionId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        if(stockMovementRepository.claimPending(compactionId) == 0){
+            return 0;
+        }
+        return stockMovementRepository.applyToStock(compactionId);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.InvoiceProductQtyDto;
+import com.example.springboot.dtos.StockShortageDto;
+import com.example.springboot.exceptions.InsufficientStockException;
+import com.example.springboot.models.ItemId;
+import com.example.springboot.models.ItemModel;
+import com.example.springboot.models.StockReservationModel;
+import com.example.springboot.repositories.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Value("${stock.reservation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    // Reserved quantity per product, kept in memory so available-to-sell never sums reservation rows
+    private final ConcurrentHashMap<UUID, BigDecimal> reservedByProduct = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadReservations() {
+        if(!enabled){
+            return;
+        }
+        reservedByProduct.clear();
+        for(InvoiceProductQtyDto reserved : stockReservationRepository.sumReservedByProduct()){
+            reservedByProduct.put(reserved.idProduct(), reserved.qty());
+        }
+    }
+
+    public BigDecimal getReserved(UUID idProduct) {
+        return reservedByProduct.getOrDefault(idProduct, BigDecimal.ZERO);
+    }
+
+    @Transactional
+    public void reserve(ItemModel item) {
+        if(!tryReserve(item)){
+            BigDecimal qtyInStock = stockService.findQtyInStock(item.getProduct().getIdProduct()).orElse(null);
+            throw new InsufficientStockException(List.of(new StockShortageDto(item.getProduct().getIdProduct(), item.getQty(),
+                    qtyInStock == null ? null : qtyInStock.intValue())));
+        }
+    }
+
+    @Transactional
+    public boolean tryReserve(ItemModel item) {
+        if(!enabled){
+            return true;
+        }
+        UUID idProduct = item.getProduct().getIdProduct();
+        BigDecimal qtyInStock = stockService.findQtyInStock(idProduct).orElse(BigDecimal.ZERO);
+        boolean[] reserved = {false};
+
+        reservedByProduct.compute(idProduct, (key, current) -> {
+            BigDecimal alreadyReserved = current == null ? BigDecimal.ZERO : current;
+            if(qtyInStock.subtract(alreadyReserved).compareTo(item.getQty()) < 0){
+                return current;
+            }
+            reserved[0] = true;
+            return alreadyReserved.add(item.getQty());
+        });
+        if(!reserved[0]){
+            return false;
+        }
+        onRollback(() -> subtract(idProduct, item.getQty()));
+
+        Timestamp expiresAt = Timestamp.from(Instant.now().plus(Duration.ofMinutes(ttlMinutes)));
+        stockReservationRepository.extendInvoiceReservations(item.getInvoiceHeader().getInvoiceNumber(), expiresAt);
+
+        var reservation = new StockReservationModel();
+        reservation.setInvoiceNumber(item.getInvoiceHeader().getInvoiceNumber());
+        reservation.setSequential(item.getSequential());
+        reservation.setIdProduct(idProduct);
+        reservation.setQty(item.getQty());
+        reservation.setExpiresAt(expiresAt);
+        stockReservationRepository.save(reservation);
+        return true;
+    }
+
+    @Transactional
+    public void release(Long invoiceNumber, Long sequential) {
+        if(!enabled){
+            return;
+        }
+        stockReservationRepository.findById(new ItemId(invoiceNumber, sequential))
+                .ifPresent(reservation -> releaseAll(List.of(reservation)));
+    }
+
+    @Transactional
+    public void releaseInvoice(Long invoiceNumber) {
+        if(!enabled){
+            return;
+        }
+        releaseAll(stockReservationRepository.findByInvoiceNumber(invoiceNumber));
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-interval-ms:60000}")
+    @Transactional
+    public void releaseExpired() {
+        if(!enabled){
+            return;
+        }
+        releaseAll(stockReservationRepository.findByExpiresAtBefore(Timestamp.from(Instant.now())));
+    }
+
+    private void releaseAll(List<StockReservationModel> reservations) {
+        // The sweep and a confirmation or item delete may load the same rows; only the one whose delete hits gives them back
+        for(StockReservationModel reservation : reservations){
+            if(stockReservationRepository.deleteReservation(reservation.getInvoiceNumber(), reservation.getSequential()) == 0){
+                continue;
+            }
+            subtract(reservation.getIdProduct(), reservation.getQty());
+            onRollback(() -> reservedByProduct.merge(reservation.getIdProduct(), reservation.getQty(), BigDecimal::add));
+        }
+    }
+
+    private void subtract(UUID idProduct, BigDecimal qty) {
+        reservedByProduct.computeIfPresent(idProduct, (key, current) -> {
+            BigDecimal remaining = current.subtract(qty);
+            return remaining.signum() > 0 ? remaining : null;
+        });
+    }
+
+    // The ledger is updated eagerly so concurrent scans see it, and restored if the surrounding transaction fails
+    private void onRollback(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if(status != STATUS_COMMITTED){
+                    action.run();
+                }
+            }
+        });
+    }
+}
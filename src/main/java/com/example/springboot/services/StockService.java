@@ -1,63 +1,203 @@
 package com.example.springboot.services;
 
+import com.example.springboot.dtos.InvoiceProductQtyDto;
+import com.example.springboot.dtos.StockShortageDto;
+import com.example.springboot.exceptions.ConflictException;
+import com.example.springboot.exceptions.InsufficientStockException;
 import com.example.springboot.models.*;
-import com.example.springboot.repositories.InvoiceHeaderRepository;
-import com.example.springboot.repositories.ItemRepository;
 import com.example.springboot.repositories.StockRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Service
 public class StockService {
 
     @Autowired
-    private InvoiceHeaderRepository invoiceHeaderRepository;
+    private StockRepository stockRepository;
 
     @Autowired
-    private ItemRepository itemRepository;
+    private StockLedgerService stockLedgerService;
 
-    @Autowired
-    private StockRepository stockRepository;
+    @Value("${stock.concurrency.mode:ATOMIC}")
+    private StockConcurrencyMode concurrencyMode;
+
+    @Value("${stock.concurrency.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${stock.concurrency.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    private final ReentrantLock[] stripes;
+
+    public StockService(@Value("${stock.concurrency.lock-stripes:1024}") int lockStripes) {
+        this.stripes = new ReentrantLock[lockStripes];
+        for(int i = 0; i < lockStripes; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public StockConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    public void setConcurrencyMode(StockConcurrencyMode concurrencyMode) {
+        this.concurrencyMode = concurrencyMode;
+    }
+
+    // Wraps the whole confirmation transaction: STRIPED holds the product locks until commit, OPTIMISTIC retries it
+    public <T> T runWithStockConcurrency(Long invoiceNumber, Supplier<T> confirmation) {
+        return runWithStockConcurrency("invoice " + invoiceNumber,
+                () -> stockRepository.findInvoiceProductQty(invoiceNumber).stream().map(InvoiceProductQtyDto::idProduct).toList(),
+                confirmation);
+    }
+
+    // For a confirmation whose items are written in the same transaction, so they cannot be read beforehand
+    public <T> T runWithStockConcurrency(Collection<UUID> idProducts, Supplier<T> confirmation) {
+        return runWithStockConcurrency("the checkout", () -> idProducts, confirmation);
+    }
+
+    private <T> T runWithStockConcurrency(String subject, Supplier<Collection<UUID>> idProducts, Supplier<T> confirmation) {
+        switch (concurrencyMode) {
+            case STRIPED:
+            case LEDGER:
+                return runWithProductLocks(subject, idProducts.get(), confirmation);
+            case OPTIMISTIC:
+                for(int attempt = 1; ; attempt++){
+                    try{
+                        return confirmation.get();
+                    }catch(OptimisticLockingFailureException e){
+                        if(attempt >= maxRetries){
+                            throw new ConflictException("Stock changed concurrently for the products of " + subject + ", try again");
+                        }
+                    }
+                }
+            default:
+                return confirmation.get();
+        }
+    }
+
+    // Applies every stock movement of the invoice; any shortage rolls the whole confirmation back
+    @Transactional
+    public void updateStock(InvoiceHeaderModel invoiceHeader) {
+        OPTModel opt = invoiceHeader.getOpt();
+        if(opt.getUpdateStock().equals("N")){
+            return;
+        }
+        Long invoiceNumber = invoiceHeader.getInvoiceNumber();
+        boolean purchase = opt.getType().equals("P");
+        switch (concurrencyMode) {
+            case ATOMIC -> updateStockSetBased(invoiceNumber, purchase);
+            case LEDGER -> checkLedgerAvailability(invoiceNumber, purchase);
+            default -> updateStockRows(invoiceNumber, purchase);
+        }
+        stockLedgerService.recordInvoiceMovements(invoiceNumber, opt.getType(), concurrencyMode != StockConcurrencyMode.LEDGER);
+    }
 
-    public void updateStock(Long invoiceNumber) throws Exception {
-        Optional<InvoiceHeaderModel> invoiceHeader = invoiceHeaderRepository.findById(invoiceNumber);
-        if(invoiceHeader.isEmpty()) {
-            throw new Exception("Invoice Header does not exist");
+    // Snapshot plus movements not yet compacted; zero pending outside ledger mode
+    public Optional<BigDecimal> findQtyInStock(UUID idProduct) {
+        StockId stockId = new StockId();
+        stockId.setIdProduct(idProduct);
+        Optional<BigDecimal> qtyInStock = stockRepository.findByStockId(stockId)
+                .map(StockModel::getQtyInStock).map(BigDecimal::valueOf);
+        if(concurrencyMode != StockConcurrencyMode.LEDGER){
+            return qtyInStock;
         }
-        String updateStock = invoiceHeader.get().getOpt().getUpdateStock();
-        if(updateStock.equals("N")){
+        return qtyInStock.map(snapshot -> snapshot.add(stockLedgerService.getPendingQty(idProduct)));
+    }
+
+    private void checkLedgerAvailability(Long invoiceNumber, boolean purchase) {
+        List<StockShortageDto> shortages = purchase
+                ? stockRepository.findInvoiceMissingStock(invoiceNumber)
+                : stockRepository.findInvoiceLedgerShortages(invoiceNumber);
+        if(!shortages.isEmpty()){
+            throw new InsufficientStockException(shortages);
+        }
+    }
+
+    private void updateStockSetBased(Long invoiceNumber, boolean purchase) {
+        long products = stockRepository.countInvoiceProducts(invoiceNumber);
+
+        if(purchase){
+            if(stockRepository.incrementInvoiceStock(invoiceNumber) != products){
+                throw new InsufficientStockException(stockRepository.findInvoiceMissingStock(invoiceNumber));
+            }
             return;
         }
-        String type = invoiceHeader.get().getOpt().getType();
 
-        List<ItemModel> itemList = itemRepository.findByInvoiceNumber(invoiceHeaderRepository.findById(invoiceNumber).get());
+        List<StockShortageDto> shortages = stockRepository.findInvoiceShortages(invoiceNumber);
+        if(!shortages.isEmpty()){
+            throw new InsufficientStockException(shortages);
+        }
+        if(stockRepository.decrementInvoiceStock(invoiceNumber) != products){
+            throw new InsufficientStockException("Stock changed concurrently for the products of invoice " + invoiceNumber);
+        }
+    }
 
-        for(ItemModel item : itemList){
-            BigDecimal qty = item.getQty();
+    private void updateStockRows(Long invoiceNumber, boolean purchase) {
+        List<StockShortageDto> shortages = new ArrayList<>();
+        List<StockModel> stocks = new ArrayList<>();
 
+        for(InvoiceProductQtyDto movement : stockRepository.findInvoiceProductQty(invoiceNumber)){
             StockId stockId = new StockId();
-            stockId.setIdProduct(item.getProduct().getIdProduct());
+            stockId.setIdProduct(movement.idProduct());
 
-            Optional<StockModel> stockModel = stockRepository.findById(stockId);
+            Optional<StockModel> stockModel = stockRepository.findByStockId(stockId);
             if(stockModel.isEmpty()){
-                throw new Exception("Stock does not exist for the product " + item.getProduct().getIdProduct());
+                shortages.add(new StockShortageDto(movement.idProduct(), movement.qty(), null));
+                continue;
             }
             BigDecimal qtyInStock = new BigDecimal(stockModel.get().getQtyInStock());
-            if(type.equals("P")){
-                stockModel.get().setQtyInStock(qtyInStock.add(qty).intValue());
+            if(purchase){
+                stockModel.get().setQtyInStock(qtyInStock.add(movement.qty()).intValue());
+            }else if(movement.qty().compareTo(qtyInStock) <= 0){
+                stockModel.get().setQtyInStock(qtyInStock.subtract(movement.qty()).intValue());
             }else{
-                if(qty.compareTo(qtyInStock)<0){
-                    stockModel.get().setQtyInStock(qtyInStock.subtract(qty).intValue());
-                }else{
-                    throw new Exception("Not enough stock available for the product " + item.getProduct().getIdProduct());
+                shortages.add(new StockShortageDto(movement.idProduct(), movement.qty(), stockModel.get().getQtyInStock()));
+            }
+            stocks.add(stockModel.get());
+        }
+        if(!shortages.isEmpty()){
+            throw new InsufficientStockException(shortages);
+        }
+        stockRepository.saveAll(stocks);
+    }
+
+    private <T> T runWithProductLocks(String subject, Collection<UUID> idProducts, Supplier<T> confirmation) {
+        // Stripes are always taken in ascending order so two invoices sharing products cannot deadlock
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for(UUID idProduct : idProducts){
+            stripeIndexes.add(Math.floorMod(idProduct.hashCode(), stripes.length));
+        }
+        List<ReentrantLock> acquired = new ArrayList<>(stripeIndexes.size());
+        try{
+            for(Integer index : stripeIndexes){
+                ReentrantLock lock = stripes[index];
+                if(!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)){
+                    throw new ConflictException("Timed out waiting for the stock of " + subject + ", try again");
                 }
+                acquired.add(lock);
+            }
+            return confirmation.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for the stock of " + subject);
+        }finally{
+            for(int i = acquired.size() - 1; i >= 0; i--){
+                acquired.get(i).unlock();
             }
         }
     }
@@ -72,4 +212,19 @@ public class StockService {
 
         stockRepository.save(stockModel);
     }
+
+    // Rows of new products are inserted together, in JDBC batches
+    public void createStocks(Collection<UUID> idProducts){
+        List<StockModel> stocks = new ArrayList<>(idProducts.size());
+        for(UUID idProduct : idProducts){
+            StockModel stockModel = new StockModel();
+            StockId stockId = new StockId();
+            stockId.setIdProduct(idProduct);
+
+            stockModel.setStockId(stockId);
+            stockModel.setQtyInStock(0);
+            stocks.add(stockModel);
+        }
+        stockRepository.saveAll(stocks);
+    }
 }
@@ -1,9 +1,12 @@
 package com.example.springboot;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 
+// Same configuration as the MockMvc tests, so every test class shares one application context
 @SpringBootTest
+@AutoConfigureMockMvc
 class SpringbootApplicationTests {
 
 	@Test
@@ -0,0 +1,178 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.models.*;
+import com.example.springboot.repositories.*;
+import com.example.springboot.services.IdempotencyService;
+import com.example.springboot.services.ProductCacheService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CheckoutControllerTest {
+
+    private static final int INITIAL_STOCK = 10;
+    private static final long BREAD = 7894000L;
+    private static final long MILK = 7894001L;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private OPTRepository optRepository;
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private InvoiceHeaderRepository invoiceHeaderRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+    @Autowired
+    private DailySalesTotalRepository dailySalesTotalRepository;
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    private Long idOpt;
+    private Long idPmt;
+    private UUID idBread;
+    private UUID idMilk;
+
+    @BeforeEach
+    void setUp() {
+        OPTModel opt = new OPTModel();
+        opt.setType("S");
+        opt.setUpdateStock("Y");
+        opt.setActive("Y");
+        idOpt = optRepository.save(opt).getIdOpt();
+
+        PaymentMethodModel payment = new PaymentMethodModel();
+        payment.setType("Dinheiro");
+        idPmt = paymentMethodRepository.save(payment).getIdPmt();
+
+        idBread = saveProductWithStock("Pão de Forma", BREAD);
+        idMilk = saveProductWithStock("Leite Integral 1L", MILK);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        dailySalesRepository.deleteAllInBatch();
+        dailySalesTotalRepository.deleteAllInBatch();
+        stockMovementRepository.deleteAllInBatch();
+        itemRepository.deleteAllInBatch();
+        invoiceHeaderRepository.deleteAllInBatch();
+        stockRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        paymentMethodRepository.deleteAllInBatch();
+        optRepository.deleteAllInBatch();
+        // Batch deletes bypass the controllers, which evict the barcodes themselves
+        productCacheService.evict(BREAD);
+        productCacheService.evict(MILK);
+    }
+
+    @Test
+    void aRejectedLineWritesNothingAndReportsEveryRejectedLine() throws Exception {
+        String basket = basket("{ \"barCode\": " + BREAD + ", \"qty\": 2 }",
+                "{ \"barCode\": 1, \"qty\": 1 }",
+                "{ \"barCode\": " + MILK + ", \"qty\": 1 }",
+                "{ \"barCode\": 2, \"qty\": 1 }");
+
+        mockMvc.perform(post("/checkout").contentType(MediaType.APPLICATION_JSON).content(basket))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.lines.length()").value(2))
+                .andExpect(jsonPath("$.lines[0].line").value(1))
+                .andExpect(jsonPath("$.lines[1].line").value(3));
+
+        assertNothingWritten();
+    }
+
+    @Test
+    void aStockShortageRollsTheWholeBasketBack() throws Exception {
+        String basket = basket("{ \"barCode\": " + BREAD + ", \"qty\": 2 }",
+                "{ \"barCode\": " + MILK + ", \"qty\": " + (INITIAL_STOCK + 1) + " }");
+
+        mockMvc.perform(post("/checkout").contentType(MediaType.APPLICATION_JSON).content(basket))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.shortages.length()").value(1));
+
+        assertNothingWritten();
+    }
+
+    @Test
+    void aReplayWithTheSameIdempotencyKeyConfirmsOnce() throws Exception {
+        String basket = basket("{ \"barCode\": " + BREAD + ", \"qty\": 2 }", "{ \"barCode\": " + MILK + ", \"qty\": 3 }");
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        for(int attempt = 0; attempt < 2; attempt++){
+            mockMvc.perform(post("/checkout").contentType(MediaType.APPLICATION_JSON).content(basket)
+                            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.confirmed").value("S"));
+        }
+        mockMvc.perform(post("/checkout").contentType(MediaType.APPLICATION_JSON).content(basket)
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey))
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"));
+
+        assertEquals(1, invoiceHeaderRepository.count());
+        assertEquals(2, itemRepository.count());
+        assertEquals(INITIAL_STOCK - 2, qtyInStock(idBread));
+        assertEquals(INITIAL_STOCK - 3, qtyInStock(idMilk));
+        assertEquals(1, dailySalesTotalRepository.count());
+        assertEquals(0, new BigDecimal("5").compareTo(dailySalesTotalRepository.findAll().get(0).getQty()));
+    }
+
+    private void assertNothingWritten() {
+        assertEquals(0, invoiceHeaderRepository.count());
+        assertEquals(0, itemRepository.count());
+        assertEquals(0, stockMovementRepository.count());
+        assertEquals(0, dailySalesRepository.count());
+        assertEquals(0, dailySalesTotalRepository.count());
+        assertEquals(INITIAL_STOCK, qtyInStock(idBread));
+        assertEquals(INITIAL_STOCK, qtyInStock(idMilk));
+    }
+
+    private String basket(String... lines) {
+        return "{ \"paymentId\": " + idPmt + ", \"optId\": " + idOpt + ", \"items\": [" + String.join(", ", lines) + "] }";
+    }
+
+    private int qtyInStock(UUID idProduct) {
+        return stockRepository.findResponseById(idProduct).orElseThrow().getQtyInStock();
+    }
+
+    private UUID saveProductWithStock(String name, long barCode) {
+        ProductModel product = new ProductModel();
+        product.setName(name);
+        product.setproductValue(new BigDecimal("4.50"));
+        product.setBarCode(barCode);
+        product.setActive("Y");
+        product = productRepository.save(product);
+
+        StockId stockId = new StockId();
+        stockId.setIdProduct(product.getIdProduct());
+        StockModel stock = new StockModel();
+        stock.setStockId(stockId);
+        stock.setQtyInStock(INITIAL_STOCK);
+        stockRepository.save(stock);
+        return product.getIdProduct();
+    }
+}
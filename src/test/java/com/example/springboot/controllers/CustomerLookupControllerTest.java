@@ -0,0 +1,125 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.models.*;
+import com.example.springboot.repositories.*;
+import com.example.springboot.services.CustomerLookupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Customers saved straight through the repository stand in for registrations made on another instance
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomerLookupControllerTest {
+
+    private static final String CPF = "85834532098";
+    private static final String OTHER_CPF = "11144477735";
+    private static final String UNKNOWN_CPF = "25414170045";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CustomerLookupService customerLookupService;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private OPTRepository optRepository;
+    @Autowired
+    private InvoiceHeaderRepository invoiceHeaderRepository;
+
+    private Long idOpt;
+
+    @BeforeEach
+    void setUp() {
+        OPTModel opt = new OPTModel();
+        opt.setType("S");
+        opt.setUpdateStock("N");
+        opt.setActive("Y");
+        idOpt = optRepository.save(opt).getIdOpt();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        invoiceHeaderRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+        optRepository.deleteAllInBatch();
+        // Batch deletes bypass the controller, which drops the cached answer itself
+        for(String cpf : new String[]{CPF, OTHER_CPF, UNKNOWN_CPF}){
+            customerLookupService.removed(cpf);
+        }
+    }
+
+    @Test
+    void savingAnExistingCpfIsAConflictAndKeepsTheCustomer() throws Exception {
+        registerElsewhere(CPF, "Original");
+
+        mockMvc.perform(post("/customers").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"cpf\": \"" + CPF + "\", \"name\": \"Outro Nome\", \"birthDate\": \"04/05/2001\" }"))
+                .andExpect(status().isConflict());
+
+        assertEquals("Original", customerRepository.findById(CPF).orElseThrow().getName());
+    }
+
+    @Test
+    void invoicePathsFindACustomerRegisteredElsewhere() throws Exception {
+        registerElsewhere(CPF, "Cliente");
+        mockMvc.perform(post("/invoice/header").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isCreated());
+        Long invoiceNumber = invoiceHeaderRepository.findAll().get(0).getInvoiceNumber();
+
+        registerElsewhere(OTHER_CPF, "Outro Cliente");
+        mockMvc.perform(put("/invoice/header/{invoiceNumber}", invoiceNumber).contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + OTHER_CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isOk());
+    }
+
+    // "No" answers are not cached, so a CPF registered meanwhile on another instance is found on the next scan
+    @Test
+    void unknownCpfIsNotFoundUntilItIsRegistered() throws Exception {
+        mockMvc.perform(post("/invoice/header").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + UNKNOWN_CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isNotFound());
+        assertEquals(0L, invoiceHeaderRepository.count());
+
+        registerElsewhere(UNKNOWN_CPF, "Cliente Novo");
+        mockMvc.perform(post("/invoice/header").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + UNKNOWN_CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void customerFoundOnceIsServedFromTheCache() throws Exception {
+        registerElsewhere(CPF, "Cliente");
+        mockMvc.perform(post("/invoice/header").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isCreated());
+        long lookups = (long) customerLookupService.stats().get("databaseLookups");
+
+        mockMvc.perform(post("/invoice/header").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"customerCpf\": \"" + CPF + "\", \"optId\": " + idOpt + " }"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.customer.name").value("Cliente"));
+
+        assertEquals(lookups, customerLookupService.stats().get("databaseLookups"));
+        assertEquals(2L, invoiceHeaderRepository.count());
+    }
+
+    private void registerElsewhere(String cpf, String name) {
+        CustomerModel customer = new CustomerModel();
+        customer.setCpf(cpf);
+        customer.setName(name);
+        customerRepository.save(customer);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.models.*;
+import com.example.springboot.repositories.*;
+import com.example.springboot.services.ProductCacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class InvoiceTotalAmountConcurrencyTest {
+
+    private static final int ITEMS = 80;
+    private static final int THREADS = 8;
+    private static final long MILK = 7893000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private OPTRepository optRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private InvoiceHeaderRepository invoiceHeaderRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @AfterEach
+    void cleanUp() {
+        itemRepository.deleteAllInBatch();
+        invoiceHeaderRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        optRepository.deleteAllInBatch();
+        productCacheService.evict(MILK);
+    }
+
+    private Long newInvoice() {
+        OPTModel opt = new OPTModel();
+        opt.setType("S");
+        opt.setUpdateStock("N");
+        opt.setActive("Y");
+        opt = optRepository.save(opt);
+
+        ProductModel product = new ProductModel();
+        product.setName("Leite Integral 1L");
+        product.setproductValue(new BigDecimal("1.50"));
+        product.setBarCode(MILK);
+        product.setActive("Y");
+        productRepository.save(product);
+
+        InvoiceHeaderModel invoiceHeader = new InvoiceHeaderModel();
+        invoiceHeader.setOpt(opt);
+        return invoiceHeaderRepository.save(invoiceHeader).getInvoiceNumber();
+    }
+
+    @Test
+    void parallelItemAddsOnOneInvoiceNeverLoseADelta() throws Exception {
+        Long invoiceNumber = newInvoice();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try{
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for(int i = 0; i < ITEMS; i++){
+                statuses.add(executor.submit(() -> mockMvc.perform(post("/invoice/item").contentType(MediaType.APPLICATION_JSON)
+                                .content("{ \"invoiceNumber\": " + invoiceNumber + ", \"barCode\": " + MILK + ", \"qty\": 1 }"))
+                        .andReturn().getResponse().getStatus()));
+            }
+            for(Future<Integer> status : statuses){
+                assertEquals(201, status.get());
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, new BigDecimal("120").compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+        assertEquals(0, itemRepository.sumTotalAmount(invoiceNumber).compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+    }
+
+    @Test
+    void priceChangeDoesNotSkewTheRunningTotal() throws Exception {
+        Long invoiceNumber = newInvoice();
+        long sequential = objectMapper.readTree(mockMvc.perform(post("/invoice/item").contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"invoiceNumber\": " + invoiceNumber + ", \"barCode\": " + MILK + ", \"qty\": 2 }"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("sequential").asLong();
+        assertEquals(0, new BigDecimal("3.00").compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+
+        UUID idProduct = productRepository.findByBarCode(MILK).get().getIdProduct();
+        mockMvc.perform(put("/products/" + idProduct).contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"name\": \"Leite Integral 1L\", \"productValue\": 2.00, \"barCode\": " + MILK + ", \"weight\": 1, \"active\": \"Y\" }"))
+                .andExpect(status().isOk());
+
+        // The item keeps the price it was added at, so the update and the delete take back exactly what was added
+        String itemPath = "/invoice/item/" + sequential + "/" + invoiceNumber;
+        mockMvc.perform(put(itemPath).contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"invoiceNumber\": " + invoiceNumber + ", \"barCode\": " + MILK + ", \"qty\": 3 }"))
+                .andExpect(status().isOk());
+        assertEquals(0, new BigDecimal("4.50").compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+        assertEquals(0, itemRepository.sumTotalAmount(invoiceNumber).compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+
+        mockMvc.perform(delete(itemPath)).andExpect(status().isOk());
+        assertEquals(0, BigDecimal.ZERO.compareTo(invoiceHeaderRepository.findTotalAmount(invoiceNumber)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.springboot.controllers;
+
+import com.example.springboot.models.*;
+import com.example.springboot.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Counts only the statements of the request itself, see StatementCounter
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemControllerStatementCountTest {
+
+    private static final int INVOICES = 20;
+    private static final int PRODUCTS = 50;
+    private static final int ITEMS = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private OPTRepository optRepository;
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private InvoiceHeaderRepository invoiceHeaderRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private List<InvoiceHeaderModel> invoices;
+
+    @BeforeEach
+    void setUp() {
+        OPTModel opt = new OPTModel();
+        opt.setType("S");
+        opt.setUpdateStock("N");
+        opt.setActive("Y");
+        opt = optRepository.save(opt);
+
+        PaymentMethodModel payment = new PaymentMethodModel();
+        payment.setType("Cartão");
+        payment.setCardBrand("Visa");
+        payment = paymentMethodRepository.save(payment);
+
+        List<ProductModel> products = new ArrayList<>();
+        for(int i = 0; i < PRODUCTS; i++){
+            ProductModel product = new ProductModel();
+            product.setName("Produto " + i);
+            product.setproductValue(new BigDecimal("1.50"));
+            product.setBarCode(7890000L + i);
+            product.setActive("Y");
+            products.add(product);
+        }
+        products = productRepository.saveAll(products);
+
+        invoices = new ArrayList<>();
+        for(int i = 0; i < INVOICES; i++){
+            CustomerModel customer = new CustomerModel();
+            customer.setCpf(String.format("%011d", i + 1));
+            customer.setName("Cliente " + i);
+            customer = customerRepository.save(customer);
+
+            InvoiceHeaderModel invoiceHeader = new InvoiceHeaderModel();
+            invoiceHeader.setOpt(opt);
+            invoiceHeader.setPayment(payment);
+            invoiceHeader.setCustomer(customer);
+            invoices.add(invoiceHeader);
+        }
+        invoices = invoiceHeaderRepository.saveAll(invoices);
+
+        List<ItemModel> items = new ArrayList<>();
+        for(int i = 0; i < ITEMS; i++){
+            ItemModel item = new ItemModel();
+            item.setInvoiceHeader(invoices.get(i % INVOICES));
+            item.setProduct(products.get(i % PRODUCTS));
+            item.setQty(BigDecimal.ONE);
+            items.add(item);
+        }
+        itemRepository.saveAll(items);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        StatementCounter.stop();
+        itemRepository.deleteAllInBatch();
+        invoiceHeaderRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        paymentMethodRepository.deleteAllInBatch();
+        optRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void listingOneThousandItemsRunsASingleSelect() throws Exception {
+        StatementCounter.start();
+        mockMvc.perform(get("/invoice/item").param("limit", String.valueOf(ITEMS)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ITEMS))
+                .andExpect(jsonPath("$[0].invoiceHeader.customer.name").exists())
+                .andExpect(jsonPath("$[0].invoiceHeader.opt.type").value("S"))
+                .andExpect(jsonPath("$[0].product.barCode").exists());
+
+        assertEquals(1, StatementCounter.stop());
+    }
+
+    @Test
+    void listingTheItemsOfOneInvoiceRunsAConstantNumberOfSelects() throws Exception {
+        Long invoiceNumber = invoices.get(0).getInvoiceNumber();
+        StatementCounter.start();
+        mockMvc.perform(get("/invoice/items/{invoiceNumber}", invoiceNumber))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ITEMS / INVOICES));
+
+        // header lookup plus the item select
+        assertEquals(2, StatementCounter.stop());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springboot.controllers;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Registered for every test through hibernate.session_factory.statement_inspector; only counts statements
+// prepared on a thread that started counting, so scheduled jobs and other threads never reach the total
+public final class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        COUNT.set(new AtomicInteger());
+    }
+
+    public static int stop() {
+        AtomicInteger count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = COUNT.get();
+        if(count != null){
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+}
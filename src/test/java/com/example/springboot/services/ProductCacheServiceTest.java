@@ -0,0 +1,76 @@
+package com.example.springboot.services;
+
+import com.example.springboot.models.ProductModel;
+import com.example.springboot.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductCacheServiceTest {
+
+    private static final long BARCODE = 7894000L;
+    private static final long NEW_BARCODE = 7894001L;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+    @Autowired
+    private ProductChangeService productChangeService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch();
+        productCacheService.evict(BARCODE);
+        productCacheService.evict(NEW_BARCODE);
+    }
+
+    private ProductModel newProduct() {
+        ProductModel product = new ProductModel();
+        product.setName("Café 500g");
+        product.setproductValue(new BigDecimal("12.90"));
+        product.setBarCode(BARCODE);
+        product.setActive("Y");
+        return productChangeService.save(product);
+    }
+
+    // Writes go straight through ProductChangeService, as another instance would, so nothing evicts the local entry
+    @Test
+    void priceChangeFromAnotherInstanceIsPickedUpFromTheChangeFeed() {
+        ProductModel product = newProduct();
+        productCacheService.refresh();
+        assertEquals(0, new BigDecimal("12.90").compareTo(productCacheService.findByBarCode(BARCODE).get().productValue()));
+
+        product.setproductValue(new BigDecimal("13.50"));
+        productChangeService.save(product);
+        productCacheService.refresh();
+
+        assertEquals(0, new BigDecimal("13.50").compareTo(productCacheService.findByBarCode(BARCODE).get().productValue()));
+    }
+
+    @Test
+    void barCodeChangeAndDeleteDropTheOldEntry() {
+        ProductModel product = newProduct();
+        productCacheService.refresh();
+        productCacheService.findByBarCode(BARCODE);
+
+        product.setBarCode(NEW_BARCODE);
+        productChangeService.save(product);
+        productCacheService.refresh();
+        assertTrue(productCacheService.findByBarCode(BARCODE).isEmpty());
+
+        productCacheService.findByBarCode(NEW_BARCODE);
+        productChangeService.delete(productRepository.findById(product.getIdProduct()).get());
+        productCacheService.refresh();
+        assertTrue(productCacheService.findByBarCode(NEW_BARCODE).isEmpty());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.springboot.services;
+
+import com.example.springboot.dtos.DailySalesReportDto;
+import com.example.springboot.exceptions.ConflictException;
+import com.example.springboot.models.*;
+import com.example.springboot.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Same configuration as the MockMvc tests, so every test class shares one application context
+@SpringBootTest
+@AutoConfigureMockMvc
+class StockServiceConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 30;
+    private static final int INVOICES = 40;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private OPTRepository optRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private InvoiceHeaderRepository invoiceHeaderRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+    @Autowired
+    private DailySalesTotalRepository dailySalesTotalRepository;
+
+    @AfterEach
+    void cleanUp() {
+        stockService.setConcurrencyMode(StockConcurrencyMode.ATOMIC);
+        stockMovementRepository.deleteAll();
+        dailySalesRepository.deleteAllInBatch();
+        dailySalesTotalRepository.deleteAllInBatch();
+        itemRepository.deleteAll();
+        invoiceHeaderRepository.deleteAll();
+        stockRepository.deleteAll();
+        productRepository.deleteAll();
+        optRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StockConcurrencyMode.class)
+    void parallelConfirmationsOfOneHotProductNeverLoseUpdatesOrOversell(StockConcurrencyMode mode) throws Exception {
+        stockService.setConcurrencyMode(mode);
+
+        OPTModel opt = new OPTModel();
+        opt.setType("S");
+        opt.setUpdateStock("Y");
+        opt.setActive("Y");
+        opt = optRepository.save(opt);
+
+        ProductModel product = new ProductModel();
+        product.setName("Pão Francês");
+        product.setproductValue(new BigDecimal("0.75"));
+        product.setBarCode(7891000L);
+        product.setActive("Y");
+        product = productRepository.save(product);
+
+        StockId stockId = new StockId();
+        stockId.setIdProduct(product.getIdProduct());
+        StockModel stock = new StockModel();
+        stock.setStockId(stockId);
+        stock.setQtyInStock(INITIAL_STOCK);
+        stockRepository.save(stock);
+
+        List<InvoiceHeaderModel> invoices = new ArrayList<>();
+        for(int i = 0; i < INVOICES; i++){
+            InvoiceHeaderModel invoiceHeader = new InvoiceHeaderModel();
+            invoiceHeader.setOpt(opt);
+            invoiceHeader = invoiceHeaderRepository.save(invoiceHeader);
+
+            ItemModel item = new ItemModel();
+            item.setInvoiceHeader(invoiceHeader);
+            item.setProduct(product);
+            item.setQty(BigDecimal.ONE);
+            itemRepository.save(item);
+            invoices.add(invoiceHeader);
+        }
+
+        AtomicInteger confirmed = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for(InvoiceHeaderModel invoiceHeader : invoices){
+            futures.add(executor.submit(() -> {
+                start.await();
+                try{
+                    invoiceService.confirmInvoice(invoiceHeader);
+                    confirmed.incrementAndGet();
+                }catch(ConflictException | OptimisticLockingFailureException e){
+                    // rejected confirmations (InsufficientStockException or retries exhausted) must leave no trace
+                }catch(RuntimeException e){
+                    unexpected.add(e);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        stockLedgerService.compact();
+
+        int qtyInStock = stockRepository.findById(stockId).orElseThrow().getQtyInStock();
+        long confirmedInDatabase = invoiceHeaderRepository.findAll().stream()
+                .filter(invoiceHeader -> invoiceHeader.getConfirmed().equals("S"))
+                .count();
+
+        assertTrue(unexpected.isEmpty(), () -> "unexpected confirmation failures: " + unexpected);
+        assertTrue(qtyInStock >= 0, "stock oversold: " + qtyInStock);
+        assertEquals(confirmed.get(), confirmedInDatabase);
+        assertEquals(confirmed.get(), INITIAL_STOCK - qtyInStock, "confirmations do not match the stock sold");
+
+        // The first sales of the day race on the insert of the aggregate rows
+        LocalDate today = LocalDate.now();
+        List<DailySalesReportDto> productDays = dailySalesRepository.findProductDays(product.getIdProduct(), today.minusDays(1), today.plusDays(1));
+        List<DailySalesReportDto> totalDays = dailySalesTotalRepository.findDays(today.minusDays(1), today.plusDays(1));
+        for(List<DailySalesReportDto> days : List.of(productDays, totalDays)){
+            assertEquals(confirmed.get(), days.stream().mapToLong(DailySalesReportDto::invoiceCount).sum());
+            assertEquals(0, new BigDecimal(confirmed.get()).compareTo(days.stream().map(DailySalesReportDto::qty).reduce(BigDecimal.ZERO, BigDecimal::add)));
+            assertEquals(0, new BigDecimal("0.75").multiply(new BigDecimal(confirmed.get()))
+                    .compareTo(days.stream().map(DailySalesReportDto::revenue).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        }
+        if(mode != StockConcurrencyMode.OPTIMISTIC){
+            assertEquals(INITIAL_STOCK, confirmed.get());
+        }
+    }
+}